@@ -0,0 +1,532 @@
+package com.max.rest.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Opt-in, in-process secondary index of users by birth date.
+ * <p>
+ * Each user is one packed {@code long} key, {@code [epochDay + offset:23][id:40]}, so keys sort by
+ * {@code (birthDate, id)}. Keys live in sorted chunks of at most {@code CHUNK_CAPACITY} entries with
+ * a prefix count per chunk, which keeps inserts and removals to one small array shift and answers
+ * rank, count and range queries with two binary searches. A primitive id-to-day map finds the key
+ * to drop when a user changes or is removed.
+ * <p>
+ * The index is loaded by one streaming scan at startup. Changes that commit while the scan runs
+ * are recorded separately and win over the scanned rows, so it never serves an older state than
+ * the one it was told about. Until the scan finishes, or if it fails, {@link #isReady()} is false
+ * and callers should query the database instead.
+ */
+@Slf4j
+@Component
+public class BirthDateIndex {
+
+    private static final String SELECT = "SELECT id, birth_date FROM users";
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int DAY_OFFSET = 1 << 22;
+    // Leaves room for the exclusive upper bound of a range ending on the last day
+    private static final int MAX_DAY = DAY_OFFSET - 2;
+    private static final int CHUNK_CAPACITY = 1024;
+    // Chunks are loaded three quarters full so the first inserts do not split them
+    private static final int LOAD_FILL = CHUNK_CAPACITY * 3 / 4;
+
+    private enum State {BUILDING, READY, OFF}
+
+    private final boolean enabled;
+    private final int fetchSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private State state;
+    private Map<Long, Integer> pending;
+    private final List<long[]> chunks = new ArrayList<>();
+    private int[] sizes = new int[0];
+    private int[] prefix = new int[1];
+    private IdDayMap days = new IdDayMap(16);
+
+    public BirthDateIndex(@Value("${app.users.birth-date-index.enabled}") boolean enabled,
+                          @Value("${app.users.birth-date-index.fetch-size}") int fetchSize,
+                          JdbcTemplate jdbcTemplate,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.fetchSize = fetchSize;
+        this.jdbcTemplate = jdbcTemplate;
+        this.state = enabled ? State.BUILDING : State.OFF;
+        this.pending = enabled ? new HashMap<>() : null;
+
+        Gauge.builder("users.birth-date-index.size", this, BirthDateIndex::size).register(meterRegistry);
+        Gauge.builder("users.birth-date-index.memory", this, BirthDateIndex::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return state == State.READY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the index with a fresh scan of the {@code users} table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled)
+            return;
+
+        withWriteLock(() -> {
+            if (state != State.BUILDING) {
+                state = State.BUILDING;
+                pending = new HashMap<>();
+            }
+        });
+
+        long start = System.nanoTime();
+        try {
+            LongList scanned = new LongList();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (ResultSet rs) -> {
+                scanned.add(key(rs.getLong(1), rs.getObject(2, LocalDate.class)));
+            });
+            Arrays.parallelSort(scanned.values, 0, scanned.size);
+
+            withWriteLock(() -> {
+                if (state != State.BUILDING)
+                    return;
+                load(scanned);
+                pending.forEach((id, day) -> {
+                    if (day != null)
+                        insert(key(id, day));
+                });
+                pending = null;
+                state = State.READY;
+            });
+            log.info("Birth date index built: {} entries, {} KiB in {} ms", size(), memoryBytes() / 1024,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.error("Unable to build birth date index, searches will use the database", e);
+            withWriteLock(this::turnOff);
+        }
+    }
+
+    public void put(long id, LocalDate birthDate) {
+        if (!enabled)
+            return;
+
+        withWriteLock(() -> {
+            if (state == State.OFF)
+                return;
+
+            long key;
+            try {
+                key = key(id, birthDate);
+            } catch (IllegalArgumentException e) {
+                log.warn("Birth date index disabled: {}", e.getMessage());
+                turnOff();
+                return;
+            }
+
+            if (state == State.BUILDING) {
+                pending.put(id, day(key));
+            } else {
+                delete(id);
+                insert(key);
+            }
+        });
+    }
+
+    /**
+     * {@link #put} once the current transaction commits, or now without one. For writes that
+     * bypass the entity listeners, such as bulk JPQL updates.
+     */
+    public void putAfterCommit(long id, LocalDate birthDate) {
+        afterCommit(() -> put(id, birthDate));
+    }
+
+    public void removeAfterCommit(long id) {
+        afterCommit(() -> remove(id));
+    }
+
+    public void remove(long id) {
+        if (!enabled)
+            return;
+
+        withWriteLock(() -> {
+            if (state == State.BUILDING)
+                pending.put(id, null);
+            else if (state == State.READY)
+                delete(id);
+        });
+    }
+
+    public long count(LocalDate fromDate, LocalDate toDate) {
+        lock.readLock().lock();
+        try {
+            return fromDate.isAfter(toDate) ? 0 : rank(upperKey(toDate)) - rank(lowerKey(fromDate));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total number of users born in {@code [fromDate, toDate]} and the ids of those at
+     * positions {@code [offset, offset + limit)} in {@code (birthDate, id)} order.
+     */
+    public RangePage page(LocalDate fromDate, LocalDate toDate, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            if (fromDate.isAfter(toDate))
+                return new RangePage(0, new long[0]);
+
+            int first = rank(lowerKey(fromDate));
+            int end = rank(upperKey(toDate));
+            int from = (int) Math.min(end, first + offset);
+            long[] ids = new long[Math.min(end - from, limit)];
+
+            int chunk = chunkAt(from);
+            int position = from - prefix[chunk];
+            for (int i = 0; i < ids.length; i++, position++) {
+                if (position == sizes[chunk]) {
+                    chunk++;
+                    position = 0;
+                }
+                ids[i] = chunks.get(chunk)[position] & ID_MASK;
+            }
+            return new RangePage(end - first, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return prefix[chunks.size()];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate heap held by the index arrays, excluding the JVM's object headers.
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) chunks.size() * CHUNK_CAPACITY * Long.BYTES;
+            bytes += (long) (sizes.length + prefix.length) * Integer.BYTES;
+            return bytes + days.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load(LongList sorted) {
+        chunks.clear();
+        days = new IdDayMap(sorted.size + pending.size());
+        int chunkCount = 0;
+        long[] current = null;
+        int filled = 0;
+        int[] chunkSizes = new int[sorted.size / LOAD_FILL + 1];
+        for (int i = 0; i < sorted.size; i++) {
+            long key = sorted.values[i];
+            long id = key & ID_MASK;
+            if (pending.containsKey(id))
+                continue;
+            if (current == null || filled == LOAD_FILL) {
+                if (current != null)
+                    chunkSizes[chunkCount - 1] = filled;
+                current = new long[CHUNK_CAPACITY];
+                chunks.add(current);
+                chunkCount++;
+                filled = 0;
+            }
+            current[filled++] = key;
+            days.put(id, day(key));
+        }
+        if (current != null)
+            chunkSizes[chunkCount - 1] = filled;
+        sizes = Arrays.copyOf(chunkSizes, chunkCount);
+        refreshPrefix();
+    }
+
+    private void insert(long key) {
+        if (chunks.isEmpty()) {
+            chunks.add(new long[CHUNK_CAPACITY]);
+            sizes = new int[1];
+        }
+
+        int chunk = chunkFor(key);
+        long[] keys = chunks.get(chunk);
+        int position = -Arrays.binarySearch(keys, 0, sizes[chunk], key) - 1;
+        System.arraycopy(keys, position, keys, position + 1, sizes[chunk] - position);
+        keys[position] = key;
+        sizes[chunk]++;
+
+        if (sizes[chunk] == CHUNK_CAPACITY) {
+            int half = CHUNK_CAPACITY / 2;
+            long[] upper = new long[CHUNK_CAPACITY];
+            System.arraycopy(keys, half, upper, 0, CHUNK_CAPACITY - half);
+            chunks.add(chunk + 1, upper);
+
+            int[] split = new int[sizes.length + 1];
+            System.arraycopy(sizes, 0, split, 0, chunk);
+            split[chunk] = half;
+            split[chunk + 1] = CHUNK_CAPACITY - half;
+            System.arraycopy(sizes, chunk + 1, split, chunk + 2, sizes.length - chunk - 1);
+            sizes = split;
+        }
+        days.put(key & ID_MASK, day(key));
+        refreshPrefix();
+    }
+
+    private void delete(long id) {
+        int day = days.remove(id);
+        if (day == IdDayMap.MISSING)
+            return;
+
+        long key = key(id, day);
+        int chunk = chunkFor(key);
+        long[] keys = chunks.get(chunk);
+        int position = Arrays.binarySearch(keys, 0, sizes[chunk], key);
+        System.arraycopy(keys, position + 1, keys, position, sizes[chunk] - position - 1);
+        sizes[chunk]--;
+
+        if (sizes[chunk] == 0 && chunks.size() > 1) {
+            chunks.remove(chunk);
+            int[] merged = new int[sizes.length - 1];
+            System.arraycopy(sizes, 0, merged, 0, chunk);
+            System.arraycopy(sizes, chunk + 1, merged, chunk, merged.length - chunk);
+            sizes = merged;
+        }
+        refreshPrefix();
+    }
+
+    private void turnOff() {
+        state = State.OFF;
+        pending = null;
+        chunks.clear();
+        sizes = new int[0];
+        days = new IdDayMap(16);
+        refreshPrefix();
+    }
+
+    // Number of keys strictly less than key
+    private int rank(long key) {
+        if (chunks.isEmpty())
+            return 0;
+        int chunk = chunkFor(key);
+        int position = Arrays.binarySearch(chunks.get(chunk), 0, sizes[chunk], key);
+        return prefix[chunk] + (position >= 0 ? position : -position - 1);
+    }
+
+    // Last chunk whose first key is not greater than key, or the first chunk
+    private int chunkFor(long key) {
+        int low = 1;
+        int high = chunks.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chunks.get(mid)[0] <= key) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // Chunk holding the entry at the given rank
+    private int chunkAt(int rank) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (prefix[mid] <= rank) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private void refreshPrefix() {
+        int[] counts = new int[sizes.length + 1];
+        for (int i = 0; i < sizes.length; i++)
+            counts[i + 1] = counts[i] + sizes[i];
+        prefix = counts;
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long key(long id, LocalDate birthDate) {
+        long day = birthDate.toEpochDay();
+        if (day < -DAY_OFFSET || day > MAX_DAY)
+            throw new IllegalArgumentException("Birth date " + birthDate + " is out of the indexable range");
+        return key(id, (int) day);
+    }
+
+    private static long key(long id, int day) {
+        if (id <= 0 || id > ID_MASK)
+            throw new IllegalArgumentException("User id " + id + " is out of the indexable range");
+        return ((long) (day + DAY_OFFSET) << ID_BITS) | id;
+    }
+
+    private static int day(long key) {
+        return (int) (key >>> ID_BITS) - DAY_OFFSET;
+    }
+
+    private static long lowerKey(LocalDate fromDate) {
+        long day = Math.max(-DAY_OFFSET, Math.min(MAX_DAY + 1L, fromDate.toEpochDay()));
+        return (day + DAY_OFFSET) << ID_BITS;
+    }
+
+    private static long upperKey(LocalDate toDate) {
+        long day = Math.max(-DAY_OFFSET - 1L, Math.min(MAX_DAY, toDate.toEpochDay()));
+        return (day + 1 + DAY_OFFSET) << ID_BITS;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public record RangePage(long total, long[] ids) {
+    }
+
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Open-addressing map from user id to epoch day with linear probing. Id 0 marks a free slot,
+     * which is safe because generated ids start at 1.
+     */
+    private static final class IdDayMap {
+        static final int MISSING = Integer.MIN_VALUE;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        IdDayMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        void put(long id, int day) {
+            if ((size + 1) * 2 > keys.length)
+                resize();
+
+            int slot = slot(id);
+            while (keys[slot] != 0 && keys[slot] != id)
+                slot = (slot + 1) & (keys.length - 1);
+            if (keys[slot] == 0)
+                size++;
+            keys[slot] = id;
+            values[slot] = day;
+        }
+
+        int remove(long id) {
+            int mask = keys.length - 1;
+            int slot = slot(id);
+            while (keys[slot] != id) {
+                if (keys[slot] == 0)
+                    return MISSING;
+                slot = (slot + 1) & mask;
+            }
+            int day = values[slot];
+            size--;
+
+            // Shift later entries of the probe run back so lookups never stop at the hole
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = slot(keys[next]);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = 0;
+            return day;
+        }
+
+        long memoryBytes() {
+            return (long) keys.length * (Long.BYTES + Integer.BYTES);
+        }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0)
+                    put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
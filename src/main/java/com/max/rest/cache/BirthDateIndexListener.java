@@ -0,0 +1,34 @@
+package com.max.rest.cache;
+
+import com.max.rest.entity.UserEntity;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps the {@link BirthDateIndex} in step with {@link UserEntity} writes. Hibernate creates it
+ * through Spring, so it can take the index as a dependency.
+ * <p>
+ * The callbacks fire at flush time, so inside a transaction the change is applied only after the
+ * commit; a rolled-back write never reaches the index.
+ */
+public class BirthDateIndexListener {
+
+    private final BirthDateIndex birthDateIndex;
+
+    public BirthDateIndexListener(BirthDateIndex birthDateIndex) {
+        this.birthDateIndex = birthDateIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(UserEntity user) {
+        birthDateIndex.putAfterCommit(user.getId(), user.getBirthDate());
+    }
+
+    @PostRemove
+    public void removed(UserEntity user) {
+        birthDateIndex.removeAfterCommit(user.getId());
+    }
+}
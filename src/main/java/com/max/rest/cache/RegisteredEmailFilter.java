@@ -0,0 +1,182 @@
+package com.max.rest.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "is this email definitely not registered?" without a database round-trip, and keeps two
+ * registrations of the same email on this instance from racing each other to the unique index.
+ * <p>
+ * Emails are lower-cased and kept in a scalable Bloom filter: once the newest stage holds its
+ * expected number of emails, a stage twice as large with half the false positive rate is added,
+ * so the overall rate stays under the configured one as the table grows. Deleted emails are never
+ * removed and only cost a database check. Until the startup scan finishes every email "might be
+ * registered". The unique index on {@code users.email} stays the source of truth.
+ */
+@Slf4j
+@Component
+public class RegisteredEmailFilter {
+
+    private static final String SELECT = "SELECT email FROM users";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final int fetchSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final Set<String> reservations = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public RegisteredEmailFilter(@Value("${app.users.email-filter.enabled}") boolean enabled,
+                                 @Value("${app.users.email-filter.expected-emails}") long expectedEmails,
+                                 @Value("${app.users.email-filter.false-positive-rate}") double falsePositiveRate,
+                                 @Value("${app.users.email-filter.fetch-size}") int fetchSize,
+                                 JdbcTemplate jdbcTemplate) {
+        this.enabled = enabled;
+        this.fetchSize = fetchSize;
+        this.jdbcTemplate = jdbcTemplate;
+        // The first stage takes half of the error budget, each later one half of the remainder
+        if (enabled)
+            stages.add(new Stage(expectedEmails, falsePositiveRate / 2));
+    }
+
+    /**
+     * Loads every registered email. Emails added while the scan runs are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled)
+            return;
+
+        long start = System.nanoTime();
+        try {
+            AtomicLong loaded = new AtomicLong();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (ResultSet rs) -> {
+                add(rs.getString(1));
+                loaded.incrementAndGet();
+            });
+            ready = true;
+            log.info("Registered email filter loaded: {} emails, {} stages, {} KiB in {} ms", loaded.get(),
+                    stages.size(), memoryBytes() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.error("Unable to load registered email filter, uniqueness checks will use the database", e);
+        }
+    }
+
+    /**
+     * Returns {@code false} only if {@code email} is definitely not registered.
+     */
+    public boolean mightBeRegistered(String email) {
+        if (!ready)
+            return true;
+
+        long[] hash = hash(email);
+        for (Stage stage : stages) {
+            if (stage.filter.mightContain(hash[0], hash[1]))
+                return true;
+        }
+        return false;
+    }
+
+    public void add(String email) {
+        if (!enabled || email == null)
+            return;
+
+        long[] hash = hash(email);
+        Stage stage = stages.get(stages.size() - 1);
+        stage.filter.put(hash[0], hash[1]);
+        if (stage.count.incrementAndGet() == stage.capacity) {
+            synchronized (stages) {
+                if (stages.get(stages.size() - 1) == stage)
+                    stages.add(new Stage(stage.capacity * 2, stage.falsePositiveRate / 2));
+            }
+        }
+    }
+
+    /**
+     * Claims {@code email} for the current registration or email change until its transaction
+     * completes, or until {@link #release} without one. Returns {@code false} if another one on
+     * this instance holds it.
+     */
+    public boolean reserve(String email) {
+        String key = normalize(email);
+        if (!reservations.add(key))
+            return false;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    reservations.remove(key);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Drops a reservation taken outside a transaction; a no-op for one bound to a transaction.
+     */
+    public void release(String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            reservations.remove(normalize(email));
+    }
+
+    public long memoryBytes() {
+        return stages.stream().mapToLong(stage -> stage.filter.bitSize() / 8).sum();
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static long[] hash(String email) {
+        ByteBuffer digest = ByteBuffer.wrap(SHA_256.get().digest(normalize(email).getBytes(StandardCharsets.UTF_8)));
+        return new long[]{digest.getLong(), digest.getLong()};
+    }
+
+    private static final class Stage {
+        private final AtomicBloomFilter filter;
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final AtomicLong count = new AtomicLong();
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.filter = new AtomicBloomFilter(capacity, falsePositiveRate);
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+        }
+    }
+}
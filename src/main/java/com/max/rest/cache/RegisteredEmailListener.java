@@ -0,0 +1,25 @@
+package com.max.rest.cache;
+
+import com.max.rest.entity.UserEntity;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+/**
+ * Adds every email written to {@code users} to the {@link RegisteredEmailFilter}. Adding is safe
+ * before the commit: a rolled-back write only leaves a false positive behind.
+ */
+public class RegisteredEmailListener {
+
+    private final RegisteredEmailFilter registeredEmailFilter;
+
+    public RegisteredEmailListener(RegisteredEmailFilter registeredEmailFilter) {
+        this.registeredEmailFilter = registeredEmailFilter;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(UserEntity user) {
+        registeredEmailFilter.add(user.getEmail());
+    }
+}
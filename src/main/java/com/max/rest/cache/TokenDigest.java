@@ -0,0 +1,29 @@
+package com.max.rest.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-size SHA-256 based key for a token, so caches never hold the raw token string.
+ */
+public record TokenDigest(long high, long low) {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    public static TokenDigest of(String token) {
+        ByteBuffer buffer = ByteBuffer.wrap(sha256(token));
+        return new TokenDigest(buffer.getLong(), buffer.getLong());
+    }
+
+    public static byte[] sha256(String token) {
+        return SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,109 @@
+package com.max.rest.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access tokens revoked before their expiry.
+ * <p>
+ * Lookups first probe a pair of Bloom filters, so a token that was never revoked costs a few
+ * memory reads; only a filter hit consults the exact set. The filters rotate once per access
+ * token lifetime, which keeps every revocation in one of them for at least as long as the token
+ * can still be valid. Revocations are local to this instance.
+ */
+@Slf4j
+@Component
+public class TokenRevocationList implements DisposableBean {
+
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final Map<TokenDigest, Long> revoked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService rotator;
+    private volatile AtomicBloomFilter current;
+    private volatile AtomicBloomFilter previous;
+
+    @Autowired
+    public TokenRevocationList(@Value("${app.jwt.minutes}") int minutes,
+                               @Value("${app.jwt.revocation.expected-revocations}") long expectedRevocations,
+                               @Value("${app.jwt.revocation.false-positive-rate}") double falsePositiveRate,
+                               MeterRegistry meterRegistry) {
+        this(Duration.ofMinutes(minutes), expectedRevocations, falsePositiveRate, meterRegistry);
+    }
+
+    public TokenRevocationList(Duration tokenLifetime, long expectedRevocations, double falsePositiveRate,
+                               MeterRegistry meterRegistry) {
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.current = new AtomicBloomFilter(expectedRevocations, falsePositiveRate);
+        this.previous = new AtomicBloomFilter(expectedRevocations, falsePositiveRate);
+        Gauge.builder("jwt.revoked-tokens", revoked, Map::size).register(meterRegistry);
+
+        this.rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-rotator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = tokenLifetime.toMillis();
+        rotator.scheduleWithFixedDelay(this::rotate, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void revoke(TokenDigest digest, Instant expiration) {
+        long expiresAt = expiration.toEpochMilli();
+        if (expiresAt <= System.currentTimeMillis())
+            return;
+
+        // Exact entry first: a filter hit must always find it
+        revoked.put(digest, expiresAt);
+        current.put(digest.high(), digest.low());
+    }
+
+    public boolean isRevoked(TokenDigest digest) {
+        if (!current.mightContain(digest.high(), digest.low()) && !previous.mightContain(digest.high(), digest.low()))
+            return false;
+
+        Long expiresAt = revoked.get(digest);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Starts a new filter and drops the oldest one together with expired exact entries.
+     * Revocations still alive are copied into the new filter, so none is lost if a token outlives
+     * two rotations (e.g. after a clock adjustment).
+     */
+    public void rotate() {
+        try {
+            long now = System.currentTimeMillis();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+            AtomicBloomFilter next = new AtomicBloomFilter(expectedRevocations, falsePositiveRate);
+            previous = current;
+            current = next;
+            revoked.keySet().forEach(digest -> next.put(digest.high(), digest.low()));
+            log.debug("Rotated revocation filters, {} revoked tokens still live", revoked.size());
+        } catch (RuntimeException e) {
+            log.error("Revocation filter rotation failed", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rotator.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package com.max.rest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.max.rest.dto.User;
+import com.max.rest.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Opt-in, bounded cache of user rows by id, with a secondary email-to-id mapping.
+ * <p>
+ * Rows are kept as immutable snapshots and handed out as {@link User} views or detached
+ * {@link UserEntity} copies, so callers that need a managed entity to modify must still load it
+ * from the repository. The email mapping is only a hint: it is trusted only when the snapshot it
+ * points to still carries that email, so it never has to be invalidated exactly. Snapshots are
+ * dropped as soon as this instance changes or deletes a user, and again once the transaction
+ * completes; other instances only bound their staleness by the TTL.
+ */
+@Component
+public class UserEntityCache {
+
+    private final boolean enabled;
+    private final Cache<Long, UserSnapshot> byId;
+    private final Cache<String, Long> idByEmail;
+    private final Timer emailLoadTimer;
+    // Bumped by every invalidation so an email lookup that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserEntityCache(@Value("${app.users.cache.enabled}") boolean enabled,
+                           @Value("${app.users.cache.ttl-seconds}") long ttlSeconds,
+                           @Value("${app.users.cache.maximum-size}") long maximumSize,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.idByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "users.by-email");
+        this.emailLoadTimer = Timer.builder("users.cache.load").tag("key", "email").register(meterRegistry);
+    }
+
+    /**
+     * Returns the user for {@code id}, loading it with {@code loader} on a miss. Rows cached from
+     * such a load carry no password, so {@link #findByEmail} does not answer from them.
+     */
+    public Optional<User> findUser(Long id, Function<Long, Optional<User>> loader) {
+        if (!enabled)
+            return loader.apply(id);
+
+        // Loads through the cache, so an invalidation of this id waits for a load in flight
+        UserSnapshot snapshot = byId.get(id, key -> loader.apply(key)
+                .map(user -> {
+                    idByEmail.put(user.getEmail(), user.getId());
+                    return UserSnapshot.of(user);
+                })
+                .orElse(null));
+        return Optional.ofNullable(snapshot).map(UserSnapshot::toUser);
+    }
+
+    public Optional<UserEntity> findByEmail(String email, Function<String, Optional<UserEntity>> loader) {
+        if (!enabled)
+            return loader.apply(email);
+
+        Long id = idByEmail.getIfPresent(email);
+        UserSnapshot cached = id != null ? byId.asMap().get(id) : null;
+        if (cached != null && cached.email().equals(email) && cached.password() != null)
+            return Optional.of(cached.toEntity());
+
+        long generationAtRead = generation.get();
+        Optional<UserEntity> loaded = emailLoadTimer.record(() -> loader.apply(email));
+        loaded.ifPresent(entity -> {
+            UserSnapshot snapshot = UserSnapshot.of(entity);
+            byId.asMap().compute(entity.getId(),
+                    (key, current) -> generation.get() == generationAtRead ? snapshot : current);
+            idByEmail.put(email, entity.getId());
+        });
+        return loaded;
+    }
+
+    /**
+     * Drops the row for {@code id} now and, inside a transaction, again once it completes, so a
+     * lookup that read the old row before the commit cannot re-populate it.
+     */
+    public void invalidate(Long id) {
+        if (enabled && id != null)
+            invalidateAround(() -> byId.invalidate(id));
+    }
+
+    /**
+     * Same as {@link #invalidate(Long)} for a user known only by email.
+     */
+    public void invalidateEmail(String email) {
+        if (!enabled || email == null)
+            return;
+
+        Long id = idByEmail.getIfPresent(email);
+        invalidateAround(() -> {
+            idByEmail.invalidate(email);
+            if (id != null)
+                byId.invalidate(id);
+        });
+    }
+
+    private void invalidateAround(Runnable invalidation) {
+        generation.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private record UserSnapshot(Long id, String email, String password, String firstName, String lastName,
+                                LocalDate birthDate, String address, String phoneNumber, Long version) {
+
+        static UserSnapshot of(UserEntity entity) {
+            return new UserSnapshot(entity.getId(), entity.getEmail(), entity.getPassword(), entity.getFirstName(),
+                    entity.getLastName(), entity.getBirthDate(), entity.getAddress(), entity.getPhoneNumber(),
+                    entity.getVersion());
+        }
+
+        static UserSnapshot of(User user) {
+            return new UserSnapshot(user.getId(), user.getEmail(), null, user.getFirstName(), user.getLastName(),
+                    user.getBirthDate(), user.getAddress(), user.getPhoneNumber(), user.getVersion());
+        }
+
+        User toUser() {
+            return new User(id, email, firstName, lastName, birthDate, address, phoneNumber, version);
+        }
+
+        UserEntity toEntity() {
+            return new UserEntity(id, email, password, firstName, lastName, birthDate, address, phoneNumber, version);
+        }
+    }
+}
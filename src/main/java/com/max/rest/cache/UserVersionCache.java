@@ -0,0 +1,75 @@
+package com.max.rest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last version seen for each user id, so a conditional GET can be answered with 304 without
+ * loading the row. Entries are dropped when this instance changes or deletes the user, now and
+ * again once the transaction completes; changes made on other instances are only bounded by the TTL.
+ */
+@Component
+public class UserVersionCache {
+
+    private final boolean enabled;
+    private final Cache<Long, Long> versions;
+    // Bumped by every invalidation so a read that raced with one is not recorded
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserVersionCache(@Value("${app.users.versions.enabled}") boolean enabled,
+                            @Value("${app.users.versions.ttl-seconds}") long ttlSeconds,
+                            @Value("${app.users.versions.maximum-size}") long maximumSize,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "users.versions");
+    }
+
+    public Long get(Long id) {
+        return enabled ? versions.getIfPresent(id) : null;
+    }
+
+    /**
+     * Taken before reading a row and passed to {@link #record}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void record(Long id, Long version, long generationAtRead) {
+        if (!enabled || version == null)
+            return;
+
+        versions.asMap().compute(id, (key, current) -> generation.get() == generationAtRead ? version : current);
+    }
+
+    public void invalidate(Long id) {
+        if (!enabled)
+            return;
+
+        generation.incrementAndGet();
+        versions.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    versions.invalidate(id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.max.rest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.max.rest.dto.TokenVerification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of access tokens whose signature has already been verified.
+ * Only valid verifications are expected here; entries expire exactly at the token's {@code exp} claim.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<TokenDigest, TokenVerification> cache;
+
+    public VerifiedTokenCache(@Value("${app.jwt.cache.maximum-size}") long maximumSize,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpireAtTokenExpiration())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    public TokenVerification get(TokenDigest digest) {
+        return cache.getIfPresent(digest);
+    }
+
+    public void put(TokenDigest digest, TokenVerification verification) {
+        if (verification.getExpiration() != null)
+            cache.put(digest, verification);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static class ExpireAtTokenExpiration implements Expiry<TokenDigest, TokenVerification> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, TokenVerification verification, long currentTime) {
+            long millisLeft = verification.getExpiration().toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, TokenVerification verification, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, verification, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, TokenVerification verification, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
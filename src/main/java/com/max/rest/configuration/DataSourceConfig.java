@@ -0,0 +1,69 @@
+package com.max.rest.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * The application {@link DataSource}: a lazy proxy that takes a pooled connection only for the
+ * first statement of a transaction, and routes read-only transactions to the replica pool when
+ * {@code app.datasource.replica.url} is set.
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${app.datasource.replica.url:}' != ''")
+    public HikariDataSource replicaDataSource(@Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username}") String username,
+                                              @Value("${app.datasource.replica.password}") String password,
+                                              @Value("${app.datasource.replica.maximum-pool-size}") int maximumPoolSize,
+                                              @Value("${app.datasource.replica.connection-timeout-millis}") long connectionTimeoutMillis) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setConnectionTimeout(connectionTimeoutMillis);
+        dataSource.setReadOnly(true);
+        // Start the pool even while the replica is down, so reads fall back instead of failing to start it
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource) {
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null)
+            return new LazyConnectionDataSourceProxy(primaryDataSource);
+
+        log.info("Read-only transactions are routed to the replica pool");
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replica));
+    }
+}
@@ -0,0 +1,38 @@
+package com.max.rest.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access token signing settings under {@code app.jwt.signing}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.jwt.signing")
+public class JwtSigningProperties {
+
+    /**
+     * {@code HS512} signs access tokens with the shared secret, {@code ES256} with the key ring.
+     */
+    private String algorithm = "HS512";
+
+    private long jwksMaxAgeSeconds = 3600;
+
+    /**
+     * P-256 keys; the first one with a private key signs, the rest are only published and accepted.
+     */
+    private List<Key> keys = new ArrayList<>();
+
+    @Data
+    public static class Key {
+        private String kid;
+        /** PKCS#8, base64 */
+        private String privateKey;
+        /** X.509 SubjectPublicKeyInfo, base64 */
+        private String publicKey;
+    }
+}
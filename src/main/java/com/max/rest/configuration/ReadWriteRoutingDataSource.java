@@ -0,0 +1,51 @@
+package com.max.rest.configuration;
+
+import com.zaxxer.hikari.pool.HikariPool.PoolInitializationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else, falling back to the primary when the replica cannot provide one in time.
+ * <p>
+ * The route is picked when a connection is requested, so this only works behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * manager asks for its connection before the transaction's read-only flag is bound.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {PRIMARY, REPLICA}
+
+    private final DataSource primary;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return super.getConnection();
+        } catch (SQLException | PoolInitializationException e) {
+            if (determineCurrentLookupKey() != Route.REPLICA)
+                throw e;
+            log.warn("Replica connection unavailable, reading from the primary: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+}
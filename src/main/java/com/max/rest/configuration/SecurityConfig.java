@@ -1,8 +1,16 @@
 package com.max.rest.configuration;
 
+import com.max.rest.filter.AdaptiveConcurrencyLimiter;
+import com.max.rest.filter.ClientRateLimiter;
+import com.max.rest.filter.ConcurrencyLimitFilter;
 import com.max.rest.filter.JwtAccessTokenFilter;
+import com.max.rest.security.BCryptStrengthCalibrator;
+import com.max.rest.security.BulkheadPasswordEncoder;
+import com.max.rest.security.CalibratedBCryptPasswordEncoder;
 import com.max.rest.service.JwtProviderService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,11 +18,13 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -22,13 +32,28 @@ public class SecurityConfig {
 
     private final JwtProviderService jwtProviderService;
 
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final int maxStreams;
+
     @Autowired
-    public SecurityConfig(JwtProviderService jwtProviderService) {
+    public SecurityConfig(JwtProviderService jwtProviderService, ClientRateLimiter clientRateLimiter,
+                          AdaptiveConcurrencyLimiter concurrencyLimiter,
+                          @Value("${app.concurrency-limit.max-streams}") int maxStreams) {
         this.jwtProviderService = jwtProviderService;
+        this.clientRateLimiter = clientRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.maxStreams = maxStreams;
+    }
+
+    public ConcurrencyLimitFilter concurrencyLimitFilter() {
+        return new ConcurrencyLimitFilter(concurrencyLimiter, maxStreams);
     }
 
     public JwtAccessTokenFilter jwtAccessTokenFilter() {
-        return new JwtAccessTokenFilter(jwtProviderService);
+        return new JwtAccessTokenFilter(jwtProviderService, clientRateLimiter);
     }
 
     @Bean
@@ -41,14 +66,33 @@ public class SecurityConfig {
                 .authorizeRequests(auth -> auth
                         .antMatchers(HttpMethod.POST, "/api/auth/**", "/api/users").permitAll()
                         .antMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .antMatchers(HttpMethod.GET, "/.well-known/jwks.json").permitAll()
                         .anyRequest().authenticated()
                         .and()
+                        // Same position, so the limiter runs first and shed requests skip token checks
+                        .addFilterBefore(concurrencyLimitFilter(), UsernamePasswordAuthenticationFilter.class)
                         .addFilterBefore(jwtAccessTokenFilter(), UsernamePasswordAuthenticationFilter.class))
                 .build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.password-hashing.threads}") int threads,
+                                           @Value("${app.password-hashing.queue-capacity}") int queueCapacity,
+                                           @Value("${app.password-hashing.retry-after-seconds}") long retryAfterSeconds,
+                                           @Value("${app.password-hashing.bcrypt.strength}") int strength,
+                                           @Value("${app.password-hashing.bcrypt.target-millis}") long targetMillis,
+                                           @Value("${app.password-hashing.bcrypt.min-strength}") int minStrength,
+                                           @Value("${app.password-hashing.bcrypt.max-strength}") int maxStrength,
+                                           MeterRegistry meterRegistry) {
+        int bcryptStrength = strength > 0 ? strength
+                : BCryptStrengthCalibrator.calibrate(targetMillis, minStrength, maxStrength);
+        CalibratedBCryptPasswordEncoder bcrypt = new CalibratedBCryptPasswordEncoder(bcryptStrength);
+
+        // New hashes are stored as {bcrypt}...; hashes written before the prefix existed are plain bcrypt
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BulkheadPasswordEncoder(delegating, poolSize, queueCapacity, retryAfterSeconds, meterRegistry);
     }
 }
\ No newline at end of file
@@ -2,13 +2,19 @@ package com.max.rest.controller;
 
 import com.max.rest.dto.*;
 import com.max.rest.exception.InvalidTokenException;
+import com.max.rest.exception.ValidationException;
 import com.max.rest.service.AuthService;
 import com.max.rest.service.JwtProviderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -20,6 +26,9 @@ public class AuthController {
     private final AuthService authService;
     private final JwtProviderService jwtProvider;
 
+    @Value("${app.jwt.batch.max-size}")
+    private int maxBatchSize;
+
     @PostMapping("/authenticate")
     public ResponseEntity<JwtLoginResponse> login(@RequestBody UserCredentials authRequest) {
         log.info("Received authentication request with email: {}", authRequest.getEmail());
@@ -59,11 +68,39 @@ public class AuthController {
         String requestId = UUID.randomUUID().toString();
         log.info("Received access token validation request with ID: {}", requestId);
 
-        if (request.getAccessToken() != null && jwtProvider.isValidAccessToken(request.getAccessToken())) {
+        if (request.getAccessToken() != null && jwtProvider.verifyAccess(request.getAccessToken()).isValid()) {
             log.info("Access token is valid for ID: {}", requestId);
             return ResponseEntity.ok().build();
         }
 
         throw new InvalidTokenException("Invalid access token");
     }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody JwtAccessRequest request) {
+        if (request.getAccessToken() == null)
+            throw new InvalidTokenException("Access token is required");
+
+        authService.logout(request.getAccessToken());
+
+        log.info("Logout completed, access token revoked: {}", jwtProvider.maskToken(request.getAccessToken()));
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/validateTokens")
+    public ResponseEntity<JwtBatchValidationResponse> validateAccessTokens(@RequestBody JwtBatchValidationRequest request) {
+        List<String> tokens = request.getAccessTokens() != null ? request.getAccessTokens() : Collections.emptyList();
+        if (tokens.size() > maxBatchSize) {
+            throw new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
+                    "At most " + maxBatchSize + " tokens can be validated at once")));
+        }
+
+        Instant now = Instant.now();
+        List<TokenValidationResult> results = jwtProvider.verifyAccessBatch(tokens).stream()
+                .map(verification -> TokenValidationResult.of(verification, now))
+                .toList();
+
+        log.info("Validated batch of {} access tokens", tokens.size());
+        return ResponseEntity.ok(new JwtBatchValidationResponse(results));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.max.rest.controller;
+
+import com.max.rest.security.JwtKeyRing;
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+    private final CacheControl cacheControl;
+
+    public JwksController(JwtKeyRing keyRing,
+                          @Value("${app.jwt.signing.jwks-max-age-seconds}") long maxAgeSeconds) {
+        this.keyRing = keyRing;
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    @Operation(summary = "Public keys for access tokens",
+            description = "JSON Web Key Set with the public keys access tokens are signed with. Empty when tokens are HMAC-signed.")
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getJwks(WebRequest request) {
+        if (request.checkNotModified(keyRing.getJwksETag()))
+            return ResponseEntity.status(304).eTag(keyRing.getJwksETag()).cacheControl(cacheControl).build();
+
+        return ResponseEntity.ok()
+                .eTag(keyRing.getJwksETag())
+                .cacheControl(cacheControl)
+                .body(keyRing.getJwks());
+    }
+}
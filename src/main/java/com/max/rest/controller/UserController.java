@@ -1,10 +1,21 @@
 package com.max.rest.controller;
 
 import com.max.rest.dto.User;
+import com.max.rest.dto.UserBatchRequest;
+import com.max.rest.dto.UserBatchResponse;
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserImportFormat;
+import com.max.rest.dto.UserImportSummary;
 import com.max.rest.dto.UserRequest;
+import com.max.rest.dto.UserSlice;
 import com.max.rest.dto.UserUpdateRequest;
 import com.max.rest.exception.ValidationException;
+import com.max.rest.service.UserBatchService;
+import com.max.rest.service.UserExportService;
+import com.max.rest.service.UserImportService;
 import com.max.rest.service.UserService;
+import com.max.rest.utils.UserETag;
+import com.max.rest.utils.UserRequestValidator;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,15 +23,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -30,9 +49,26 @@ public class UserController {
 
     private final UserService userService;
 
+    private final UserBatchService userBatchService;
+
+    private final UserImportService userImportService;
+
+    private final UserExportService userExportService;
+
+    private final UserRequestValidator userRequestValidator;
+
     @Value("${app.minimum-age}")
     private int minAge;
 
+    @Value("${app.users.page.max-size}")
+    private int maxPageSize;
+
+    @Value("${app.users.scroll.max-size}")
+    private int maxScrollSize;
+
+    @Value("${app.users.batch.max-size}")
+    private int maxBatchSize;
+
     @Operation(summary = "Create an user",
             description = "Update an existing user. The response is updated User object.")
     @PostMapping
@@ -53,7 +89,52 @@ public class UserController {
         User createdUser = userService.saveUser(request);
 
         log.info("User: {} - created", createdUser.getEmail());
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(UserETag.of(createdUser.getVersion())).body(createdUser);
+    }
+
+    @Operation(summary = "Create users in bulk",
+            description = "Validate and create many users at once. Every item gets its own result, "
+                    + "so invalid or already registered items do not stop the rest.")
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchResponse> createUsers(@RequestBody UserBatchRequest request) {
+        List<UserRequest> users = request.getUsers() != null ? request.getUsers() : Collections.emptyList();
+        if (users.size() > maxBatchSize) {
+            throw new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
+                    "At most " + maxBatchSize + " users can be created at once")));
+        }
+        log.info("Creating batch of {} users", users.size());
+
+        List<UserBatchResult> results = new ArrayList<>(users.size());
+        Map<Integer, UserRequest> valid = new LinkedHashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            List<String> errors = userRequestValidator.validate(users.get(i));
+            if (errors.isEmpty())
+                valid.put(i, users.get(i));
+            else
+                results.add(UserBatchResult.rejected(i, errors));
+        }
+        results.addAll(userBatchService.saveUsers(valid));
+        results.sort(Comparator.comparingInt(UserBatchResult::getIndex));
+
+        UserBatchResponse response = UserBatchResponse.of(results);
+        log.info("Batch created: {}, rejected: {}", response.getCreated(), response.getRejected());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Import users",
+            description = "Stream users from a CSV (header row of field names) or NDJSON body. "
+                    + "The response is an NDJSON report with one line per rejected row and a summary line last.")
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserImportFormat format = UserImportFormat.fromContentType(request.getContentType());
+        log.info("Importing users from {}", format);
+
+        response.setContentType(UserImportFormat.NDJSON.getMediaType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        UserImportSummary summary = userImportService.importUsers(request.getInputStream(), format,
+                response.getOutputStream());
+
+        log.info("Users imported: {}, rejected: {}", summary.getCreated(), summary.getRejected());
     }
 
     @Operation(summary = "Get all users",
@@ -64,29 +145,79 @@ public class UserController {
             @RequestParam(defaultValue = "10") int size) {
         log.info("Fetching users, page: {}, size: {}", page, size);
 
-        PageRequest pageable = PageRequest.of(page, size);
+        PageRequest pageable = PageRequest.of(page, clampPageSize(size));
         Page<User> users = userService.getAllUsers(pageable);
 
         log.info("Users fetched: {}", users.getTotalElements());
         return ResponseEntity.ok(users);
     }
 
+    @Operation(summary = "Scroll all users",
+            description = "Retrieve users ordered by id, continuing from an opaque cursor. "
+                    + "The total is only counted when includeTotal is set.")
+    @GetMapping("/scroll")
+    public ResponseEntity<UserSlice> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.info("Scrolling users, size: {}", size);
+
+        UserSlice users = userService.scrollUsers(cursor, clampScrollSize(size), includeTotal);
+
+        log.info("Users fetched: {}", users.getContent().size());
+        return ResponseEntity.ok(users);
+    }
+
+    @Operation(summary = "Export all users",
+            description = "Stream every user as NDJSON in id order, gzip-compressed when the client accepts it.")
+    @GetMapping("/export")
+    public void exportUsers(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response) throws IOException {
+        log.info("Exporting users");
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        response.setContentType(UserImportFormat.NDJSON.getMediaType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        long exported;
+        OutputStream output = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream compressed = new GZIPOutputStream(output, 64 * 1024)) {
+                exported = userExportService.exportUsers(compressed);
+            }
+        } else
+            exported = userExportService.exportUsers(output);
+
+        log.info("Users exported: {}", exported);
+    }
+
     @Operation(summary = "Get user by ID",
             description = "Retrieve a user by their unique ID.")
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<User> getUserById(@PathVariable Long id, WebRequest webRequest) {
         log.info("Fetching user with id: {}", id);
 
+        // A revalidation against the version this instance last saw needs no database read
+        Long knownVersion = userService.getKnownVersion(id);
+        if (knownVersion != null && webRequest.checkNotModified(UserETag.of(knownVersion))) {
+            log.info("User with id: {} not modified", id);
+            return null;
+        }
+
         User user = userService.getUserById(id);
 
         log.info("User fetched with id: {}", id);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(UserETag.of(user.getVersion())).body(user);
     }
 
     @Operation(summary = "Update an user",
             description = "Update an existing user. The response is updated User object.")
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                            @RequestBody @Valid UserRequest request,
                                            BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
@@ -102,16 +233,17 @@ public class UserController {
 
         log.info("Updating user with id: {}", id);
 
-        User updatedUser = userService.updateUser(id, request);
+        User updatedUser = userService.updateUser(id, request, UserETag.acceptedVersions(ifMatch));
 
         log.info("Data updated for user: {}", id);
-        return ResponseEntity.ok(updatedUser);
+        return ResponseEntity.ok().eTag(UserETag.of(updatedUser.getVersion())).body(updatedUser);
     }
 
     @Operation(summary = "Partial update an user",
             description = "Update an existing user. The response is updated User object.")
     @PatchMapping("/{id}")
     public ResponseEntity<User> partialUpdateUser(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                   @RequestBody @Valid UserUpdateRequest request,
                                                   BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
@@ -127,10 +259,10 @@ public class UserController {
 
         log.info("Partially updating user with id: {}", id);
 
-        User partiallyUpdatedUser = userService.partialUpdateUser(id, request);
+        User partiallyUpdatedUser = userService.partialUpdateUser(id, request, UserETag.acceptedVersions(ifMatch));
 
         log.info("Data partially updated for user: {}", partiallyUpdatedUser.getEmail());
-        return ResponseEntity.ok(partiallyUpdatedUser);
+        return ResponseEntity.ok().eTag(UserETag.of(partiallyUpdatedUser.getVersion())).body(partiallyUpdatedUser);
     }
 
     @Operation(summary = "Delete an user",
@@ -155,10 +287,36 @@ public class UserController {
             @RequestParam(defaultValue = "10") int size) {
         log.info("Searching users from: {}, to: {}, page: {}, size: {}", fromDate, toDate, page, size);
 
-        PageRequest pageable = PageRequest.of(page, size);
+        PageRequest pageable = PageRequest.of(page, clampPageSize(size));
         Page<User> users = userService.searchUsers(fromDate, toDate, pageable);
 
         log.info("Users found: {}", users.getTotalElements());
         return ResponseEntity.ok(users);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Scroll search results",
+            description = "Search users by birth date ordered by (birthDate, id), continuing from an opaque cursor. "
+                    + "The total is only counted when includeTotal is set.")
+    @GetMapping("/search/scroll")
+    public ResponseEntity<UserSlice> scrollSearchUsers(
+            @DateTimeFormat(pattern = "yyyy.MM.dd") @RequestParam LocalDate fromDate,
+            @DateTimeFormat(pattern = "yyyy.MM.dd") @RequestParam LocalDate toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        log.info("Scrolling users from: {}, to: {}, size: {}", fromDate, toDate, size);
+
+        UserSlice users = userService.scrollSearchUsers(fromDate, toDate, cursor, clampScrollSize(size), includeTotal);
+
+        log.info("Users found: {}", users.getContent().size());
+        return ResponseEntity.ok(users);
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
+    private int clampScrollSize(int size) {
+        return Math.max(1, Math.min(size, maxScrollSize));
+    }
+}
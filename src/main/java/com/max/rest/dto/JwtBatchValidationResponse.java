@@ -0,0 +1,14 @@
+package com.max.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class JwtBatchValidationResponse {
+    private List<TokenValidationResult> results;
+}
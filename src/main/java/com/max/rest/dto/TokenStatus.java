@@ -0,0 +1,10 @@
+package com.max.rest.dto;
+
+public enum TokenStatus {
+    VALID,
+    EXPIRED,
+    MALFORMED,
+    INVALID_SIGNATURE,
+    UNSUPPORTED,
+    REVOKED
+}
@@ -0,0 +1,28 @@
+package com.max.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+@Getter
+@ToString
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenValidationResult {
+    private TokenStatus status;
+    private String subject;
+    private Long expiresInSeconds;
+
+    public static TokenValidationResult of(TokenVerification verification, Instant now) {
+        if (!verification.isValid())
+            return new TokenValidationResult(verification.getStatus(), null, null);
+
+        Long expiresIn = verification.getExpiration() != null
+                ? Math.max(0, verification.getExpiration().getEpochSecond() - now.getEpochSecond())
+                : null;
+        return new TokenValidationResult(verification.getStatus(), verification.getSubject(), expiresIn);
+    }
+}
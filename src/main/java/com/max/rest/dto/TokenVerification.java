@@ -0,0 +1,42 @@
+package com.max.rest.dto;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable outcome of a single verification pass over a token.
+ * Rejections are shared instances, so failed checks do not allocate.
+ */
+@Value
+public class TokenVerification {
+
+    private static final Map<TokenStatus, TokenVerification> REJECTIONS = new EnumMap<>(TokenStatus.class);
+
+    static {
+        for (TokenStatus status : TokenStatus.values()) {
+            if (status != TokenStatus.VALID)
+                REJECTIONS.put(status, new TokenVerification(status, null, null));
+        }
+    }
+
+    TokenStatus status;
+    String subject;
+    Instant expiration;
+
+    public static TokenVerification valid(String subject, Instant expiration) {
+        return new TokenVerification(TokenStatus.VALID, subject, expiration);
+    }
+
+    public static TokenVerification rejected(TokenStatus status) {
+        if (status == TokenStatus.VALID)
+            throw new IllegalArgumentException("A rejection cannot have status VALID");
+        return REJECTIONS.get(status);
+    }
+
+    public boolean isValid() {
+        return status == TokenStatus.VALID;
+    }
+}
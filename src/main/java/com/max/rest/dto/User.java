@@ -1,5 +1,6 @@
 package com.max.rest.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,4 +19,13 @@ public class User {
     private LocalDate birthDate;
     private String address;
     private String phoneNumber;
+
+    // Sent as the ETag header rather than in the body
+    @JsonIgnore
+    private Long version;
+
+    public User(Long id, String email, String firstName, String lastName, LocalDate birthDate, String address,
+                String phoneNumber) {
+        this(id, email, firstName, lastName, birthDate, address, phoneNumber, null);
+    }
 }
\ No newline at end of file
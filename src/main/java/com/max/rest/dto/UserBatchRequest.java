@@ -0,0 +1,12 @@
+package com.max.rest.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class UserBatchRequest {
+    private List<UserRequest> users;
+}
@@ -0,0 +1,21 @@
+package com.max.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserBatchResponse {
+    private long created;
+    private long rejected;
+    private List<UserBatchResult> results;
+
+    public static UserBatchResponse of(List<UserBatchResult> results) {
+        long created = results.stream().filter(result -> result.getStatus() == UserBatchStatus.CREATED).count();
+        return new UserBatchResponse(created, results.size() - created, results);
+    }
+}
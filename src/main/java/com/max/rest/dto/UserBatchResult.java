@@ -0,0 +1,30 @@
+package com.max.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Outcome for one item of a batch, identified by its position in the request.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserBatchResult {
+    private int index;
+    private UserBatchStatus status;
+    private User user;
+    private List<String> errors;
+
+    public static UserBatchResult created(int index, User user) {
+        return new UserBatchResult(index, UserBatchStatus.CREATED, user, null);
+    }
+
+    public static UserBatchResult rejected(int index, List<String> errors) {
+        return new UserBatchResult(index, UserBatchStatus.REJECTED, null, errors);
+    }
+}
@@ -0,0 +1,6 @@
+package com.max.rest.dto;
+
+public enum UserBatchStatus {
+    CREATED,
+    REJECTED
+}
@@ -0,0 +1,18 @@
+package com.max.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * One line of an import report: a row that was not imported, identified by the line it starts on.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserImportError {
+    private long line;
+    private List<String> errors;
+}
@@ -0,0 +1,29 @@
+package com.max.rest.dto;
+
+import org.springframework.http.MediaType;
+
+public enum UserImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final MediaType mediaType;
+
+    UserImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public String getMediaType() {
+        return mediaType.toString();
+    }
+
+    public static UserImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType type = MediaType.parseMediaType(contentType);
+            for (UserImportFormat format : values()) {
+                if (format.mediaType.isCompatibleWith(type))
+                    return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+    }
+}
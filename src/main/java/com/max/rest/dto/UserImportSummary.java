@@ -0,0 +1,22 @@
+package com.max.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Last line of an import report. {@code error} is only set when the import stopped early; rows
+ * reported as created before that stay created.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportSummary {
+    private long rows;
+    private long created;
+    private long rejected;
+    private long elapsedMillis;
+    private String error;
+}
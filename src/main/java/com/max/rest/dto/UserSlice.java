@@ -0,0 +1,22 @@
+package com.max.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * One page of a keyset scroll. {@code nextCursor} is absent on the last page; {@code totalElements}
+ * is only present when it was requested.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserSlice {
+    private List<User> content;
+    private String nextCursor;
+    private Long totalElements;
+}
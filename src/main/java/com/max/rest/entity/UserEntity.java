@@ -1,8 +1,13 @@
 package com.max.rest.entity;
 
+import com.max.rest.cache.BirthDateIndexListener;
+import com.max.rest.cache.RegisteredEmailListener;
+
 import javax.persistence.*;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.time.LocalDate;
 
@@ -12,10 +17,18 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Entity
 @Table(name = "users")
+@EntityListeners({BirthDateIndexListener.class, RegisteredEmailListener.class})
 public class UserEntity {
 
+    // Ids come in blocks of 50 from the user_id_sequence table, which lets Hibernate batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "user_id")
+    @GenericGenerator(name = "user_id", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "user_id_sequence"),
+            @Parameter(name = "force_table_use", value = "true"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @Column(name = "email")
@@ -39,4 +52,13 @@ public class UserEntity {
     @Column(name = "phone_number")
     private String phoneNumber;
 
+    // Also set by the bulk updates in UserServiceImpl, which bypass Hibernate's own increment
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    public UserEntity(Long id, String email, String password, String firstName, String lastName, LocalDate birthDate,
+                      String address, String phoneNumber) {
+        this(id, email, password, firstName, lastName, birthDate, address, phoneNumber, null);
+    }
 }
\ No newline at end of file
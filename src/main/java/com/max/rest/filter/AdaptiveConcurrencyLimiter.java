@@ -0,0 +1,114 @@
+package com.max.rest.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows observed latency, in the style of the gradient algorithm.
+ * <p>
+ * A long-term moving average of request latency stands in for the no-load latency. Each sample
+ * compares it with the latest latency: while they agree the limit grows by about its square
+ * root, and once requests start queueing (latency rises above {@code tolerance} times the
+ * average) the limit shrinks in proportion. Requests above the limit are refused without waiting.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final int longWindow;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter shed;
+
+    private volatile int limit;
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long samples;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(@Value("${app.concurrency-limit.enabled}") boolean enabled,
+                                      @Value("${app.concurrency-limit.initial-limit}") int initialLimit,
+                                      @Value("${app.concurrency-limit.min-limit}") int minLimit,
+                                      @Value("${app.concurrency-limit.max-limit}") int maxLimit,
+                                      @Value("${app.concurrency-limit.smoothing}") double smoothing,
+                                      @Value("${app.concurrency-limit.tolerance}") double tolerance,
+                                      @Value("${app.concurrency-limit.long-window}") int longWindow,
+                                      MeterRegistry meterRegistry) {
+        if (minLimit < 1 || minLimit > maxLimit)
+            throw new IllegalArgumentException("Invalid concurrency limit range " + minLimit + ".." + maxLimit);
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.longWindow = longWindow;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("concurrency.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        this.shed = Counter.builder("concurrency.shed").register(meterRegistry);
+    }
+
+    /**
+     * Admits a request if fewer than {@link #getLimit()} are in flight. Returns its start time to
+     * pass to {@link #release}, or -1 if it has been shed.
+     */
+    public long tryAcquire() {
+        if (!enabled)
+            return System.nanoTime();
+
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                shed.increment();
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return System.nanoTime();
+    }
+
+    public void release(long startNanos) {
+        if (!enabled)
+            return;
+
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        onSample(System.nanoTime() - startNanos, inFlightAtEnd);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtEnd) {
+        samples++;
+        // Plain average until the window fills, exponential afterwards
+        long window = Math.min(samples, longWindow);
+        longRttNanos += (rttNanos - longRttNanos) / window;
+
+        // Don't grow the limit while it is not what holds requests back
+        if (inFlightAtEnd < estimatedLimit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / Math.max(rttNanos, 1)));
+        double next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        next = estimatedLimit * (1 - smoothing) + next * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,115 @@
+package com.max.rest.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token buckets, one per endpoint group and per client IP or token subject.
+ * The auth endpoints are reached without an access token, so only their per-IP limit applies.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (GCRA), updated
+ * with one CAS per request. Buckets live in a bounded Caffeine map that drops clients idle for
+ * longer than {@code idle-expiry-seconds}, so spraying addresses cannot grow memory without
+ * bound; an evicted client simply starts again with a full bucket.
+ */
+@Component
+public class ClientRateLimiter {
+
+    public enum Group {AUTH, USERS}
+
+    public enum ClientKind {IP, SUBJECT}
+
+    private final boolean enabled;
+    private final Cache<BucketKey, AtomicLong> buckets;
+    private final Map<Group, Map<ClientKind, Limit>> limits = new EnumMap<>(Group.class);
+    private final Map<Group, Map<ClientKind, Counter>> rejections = new EnumMap<>(Group.class);
+
+    @Autowired
+    public ClientRateLimiter(@Value("${app.rate-limit.enabled}") boolean enabled,
+                             @Value("${app.rate-limit.idle-expiry-seconds}") long idleExpirySeconds,
+                             @Value("${app.rate-limit.maximum-clients}") long maximumClients,
+                             @Value("${app.rate-limit.auth.ip.permits-per-second}") double authIpRate,
+                             @Value("${app.rate-limit.auth.ip.burst}") int authIpBurst,
+                             @Value("${app.rate-limit.users.ip.permits-per-second}") double usersIpRate,
+                             @Value("${app.rate-limit.users.ip.burst}") int usersIpBurst,
+                             @Value("${app.rate-limit.users.subject.permits-per-second}") double usersSubjectRate,
+                             @Value("${app.rate-limit.users.subject.burst}") int usersSubjectBurst,
+                             MeterRegistry meterRegistry) {
+        this(enabled, Duration.ofSeconds(idleExpirySeconds), maximumClients, meterRegistry);
+        limit(Group.AUTH, ClientKind.IP, authIpRate, authIpBurst);
+        limit(Group.USERS, ClientKind.IP, usersIpRate, usersIpBurst);
+        limit(Group.USERS, ClientKind.SUBJECT, usersSubjectRate, usersSubjectBurst);
+    }
+
+    public ClientRateLimiter(boolean enabled, Duration idleExpiry, long maximumClients, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterAccess(idleExpiry)
+                .build();
+        for (Group group : Group.values()) {
+            limits.put(group, new EnumMap<>(ClientKind.class));
+            Map<ClientKind, Counter> counters = new EnumMap<>(ClientKind.class);
+            for (ClientKind kind : ClientKind.values()) {
+                counters.put(kind, Counter.builder("rate.limit.rejected")
+                        .tag("group", group.name().toLowerCase())
+                        .tag("client", kind.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            rejections.put(group, counters);
+        }
+    }
+
+    /**
+     * Sets the limit for one group and client kind; a non-positive rate disables it.
+     */
+    public ClientRateLimiter limit(Group group, ClientKind kind, double permitsPerSecond, int burst) {
+        if (permitsPerSecond > 0)
+            limits.get(group).put(kind, new Limit((long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), Math.max(burst, 1)));
+        else
+            limits.get(group).remove(kind);
+        return this;
+    }
+
+    /**
+     * Takes one permit for {@code client}. Returns 0 if it was granted, otherwise the number of
+     * nanoseconds until the next permit becomes available.
+     */
+    public long acquire(Group group, ClientKind kind, String client) {
+        Limit limit = limits.get(group).get(kind);
+        if (!enabled || limit == null || client == null)
+            return 0;
+
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(new BucketKey(group, kind, client), key -> new AtomicLong(now));
+        long tolerance = limit.interval * limit.burst;
+        while (true) {
+            long arrival = bucket.get();
+            long next = (arrival - now > 0 ? arrival : now) + limit.interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                rejections.get(group).get(kind).increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next))
+                return 0;
+        }
+    }
+
+    private record Limit(long interval, int burst) {
+    }
+
+    private record BucketKey(Group group, ClientKind kind, String client) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.max.rest.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String ACTUATOR_PREFIX = "/actuator/";
+    // Run for as long as the body takes to stream; their latency says nothing about the node's load
+    private static final Set<String> STREAMING_PATHS = Set.of("/api/users/import", "/api/users/export");
+    private static final String OVERLOADED_BODY = "{\"statusCode\":503,\"errors\":[\"Server is busy, please retry later\"]}";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final int maxStreams;
+
+    private final Semaphore streams;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, int maxStreams) {
+        this.limiter = limiter;
+        this.maxStreams = maxStreams;
+        this.streams = new Semaphore(maxStreams);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (STREAMING_PATHS.contains(request.getRequestURI())) {
+            if (!streams.tryAcquire()) {
+                shed(request, response, maxStreams);
+                return;
+            }
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                streams.release();
+            }
+            return;
+        }
+
+        long start = limiter.tryAcquire();
+        if (start < 0) {
+            shed(request, response, limiter.getInFlight());
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(start);
+        }
+    }
+
+    // Health and metrics must stay reachable while the node sheds load
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(ACTUATOR_PREFIX);
+    }
+
+    private static void shed(HttpServletRequest request, HttpServletResponse response, int inFlight) throws IOException {
+        log.info("Received request from IP: {}, to {} - shed, {} requests in flight.",
+                request.getRemoteAddr(), request.getRequestURI(), inFlight);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(OVERLOADED_BODY);
+    }
+}
@@ -1,12 +1,19 @@
 package com.max.rest.filter;
 
 import com.max.rest.dto.JwtAuthentication;
+import com.max.rest.dto.TokenVerification;
+import com.max.rest.filter.ClientRateLimiter.ClientKind;
+import com.max.rest.filter.ClientRateLimiter.Group;
 import com.max.rest.service.JwtProviderService;
 import com.max.rest.utils.JwtUtils;
-import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,31 +25,44 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RequiredArgsConstructor
 public class JwtAccessTokenFilter extends OncePerRequestFilter {
 
+    // Per-request "allowed" lines go to their own logger so they can be sampled separately
+    private static final Logger ALLOWED_LOG = LoggerFactory.getLogger(JwtAccessTokenFilter.class.getName() + ".allowed");
     private static final String AUTHORIZATION = "Authorization";
     private static final String USERS_ENDPOINT = "/api/users";
+    private static final String AUTH_PREFIX = "/api/auth/";
+    private static final String TOO_MANY_REQUESTS_BODY = "{\"statusCode\":429,\"errors\":[\"Too many requests\"]}";
     private static final List<String> PERMITTED_ENDPOINTS = Arrays.asList(
             "/api/auth/",
             "/swagger-ui/",
-            "/v3/api-docs/"
+            "/v3/api-docs/",
+            "/.well-known/"
     );
 
     private final JwtProviderService jwtProvider;
+    private final ClientRateLimiter rateLimiter;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String ipAddress = request.getRemoteAddr();
         String requestURI = request.getRequestURI();
+        Group group = rateLimitGroup(requestURI);
+
+        if (group != null && isRateLimited(response, group, ClientKind.IP, ipAddress)) {
+            log.info("Received request from IP: {}, to {} - rate limited.", ipAddress, requestURI);
+            return;
+        }
 
         boolean isPermittedEndpoint = isPermittedEndpoint(requestURI);
 
         // Check PERMITTED_ENDPOINTS to skip token validation
         if (isPermittedEndpoint) {
-            log.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
+            ALLOWED_LOG.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
             filterChain.doFilter(request, response);
             return;
         }
@@ -50,7 +70,7 @@ public class JwtAccessTokenFilter extends OncePerRequestFilter {
         // Check USERS_ENDPOINT while POST method to allow registration
         if (isUsersEndpoint(requestURI)) {
             if (isPostRequest(request)) {
-                log.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
+                ALLOWED_LOG.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
                 filterChain.doFilter(request, response);
                 return;
             }
@@ -58,17 +78,42 @@ public class JwtAccessTokenFilter extends OncePerRequestFilter {
 
 
         final String token = getTokenFromRequest(request);
-        if (token != null && jwtProvider.isValidAccessToken(token)) {
-            final Claims claims = jwtProvider.getAccessClaims(token);
-            final JwtAuthentication jwtInfoToken = JwtUtils.generate(claims);
+        final TokenVerification verification = token != null ? jwtProvider.verifyAccess(token) : null;
+        if (verification != null && verification.isValid()) {
+            if (group != null && isRateLimited(response, group, ClientKind.SUBJECT, verification.getSubject())) {
+                log.info("Received request from IP: {}, to {} - rate limited.", ipAddress, requestURI);
+                return;
+            }
+            final JwtAuthentication jwtInfoToken = JwtUtils.generate(verification);
             jwtInfoToken.setAuthenticated(true);
             SecurityContextHolder.getContext().setAuthentication(jwtInfoToken);
-            log.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
+            ALLOWED_LOG.info("Received request from IP: {}, to {} - allowed.", ipAddress, requestURI);
         } else
             log.info("Received request from IP: {}, to {} - not allowed.", ipAddress, requestURI);
         filterChain.doFilter(request, response);
     }
 
+    private boolean isRateLimited(HttpServletResponse response, Group group, ClientKind kind, String client) throws IOException {
+        long waitNanos = rateLimiter.acquire(group, kind, client);
+        if (waitNanos == 0)
+            return false;
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write(TOO_MANY_REQUESTS_BODY);
+        return true;
+    }
+
+    private Group rateLimitGroup(String requestURI) {
+        if (requestURI.startsWith(AUTH_PREFIX))
+            return Group.AUTH;
+        if (requestURI.equals(USERS_ENDPOINT) || requestURI.startsWith(USERS_ENDPOINT + "/"))
+            return Group.USERS;
+        return null;
+    }
+
     private String getTokenFromRequest(HttpServletRequest request) {
         final String bearer = request.getHeader(AUTHORIZATION);
         if (StringUtils.hasText(bearer) && bearer.startsWith("Bearer ")) {
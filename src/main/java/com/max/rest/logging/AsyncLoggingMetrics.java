@@ -0,0 +1,49 @@
+package com.max.rest.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Publishes queue depth and dropped-event counts of every {@link RingBufferAppender} in use.
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    private static final List<Level> DROPPABLE_LEVELS = List.of(Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN);
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context))
+            return;
+
+        context.getLoggerList().forEach(logger -> {
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof RingBufferAppender appender)
+                    bind(registry, appender);
+            }
+        });
+    }
+
+    private void bind(MeterRegistry registry, RingBufferAppender appender) {
+        Gauge.builder("logging.async.queue", appender, RingBufferAppender::size)
+                .tag("appender", appender.getName())
+                .register(registry);
+        for (Level level : DROPPABLE_LEVELS) {
+            FunctionCounter.builder("logging.async.dropped", appender, a -> a.getDroppedCount(level))
+                    .tag("appender", appender.getName())
+                    .tag("level", level.levelStr.toLowerCase())
+                    .register(registry);
+        }
+    }
+}
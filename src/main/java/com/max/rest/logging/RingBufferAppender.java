@@ -0,0 +1,269 @@
+package com.max.rest.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands events to the attached appenders from a single background thread.
+ * <p>
+ * Logging threads only publish into a bounded, lock-free ring buffer. The worker drains it in
+ * batches and flushes each attached output stream once per batch rather than once per event.
+ * When the buffer is full, events at or below {@code discardLevel} are dropped and counted;
+ * more severe events wait for space, so errors are never lost.
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private final LongAdder[] dropped = new LongAdder[levelIndex(Level.ERROR) + 1];
+    private final AtomicBoolean workerParked = new AtomicBoolean();
+
+    private int capacity = 8192;
+    private int batchSize = 256;
+    private Level discardLevel = Level.INFO;
+    private long maxShutdownMillis = 1000;
+
+    private int mask;
+    private AtomicReferenceArray<ILoggingEvent> slots;
+    private AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private Thread worker;
+
+    public RingBufferAppender() {
+        for (int i = 0; i < dropped.length; i++)
+            dropped[i] = new LongAdder();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted())
+            return;
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to " + getName());
+            return;
+        }
+
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+
+        // This appender flushes once per batch instead
+        for (Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders(); it.hasNext(); ) {
+            if (it.next() instanceof OutputStreamAppender<ILoggingEvent> output)
+                output.setImmediateFlush(false);
+        }
+
+        worker = new Thread(this::drainLoop, "logback-ring-buffer-" + getName());
+        worker.setDaemon(true);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted())
+            return;
+        super.stop();
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxShutdownMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive())
+            addWarn("Worker did not finish within " + maxShutdownMillis + " ms, " + size() + " events left");
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Resolve the message and MDC now; caller data is never captured
+        event.prepareForDeferredProcessing();
+
+        if (!offer(event)) {
+            if (discardLevel.isGreaterOrEqual(event.getLevel())) {
+                dropped[levelIndex(event.getLevel())].increment();
+                return;
+            }
+            while (!offer(event)) {
+                if (!isStarted())
+                    return;
+                wakeWorker();
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        wakeWorker();
+    }
+
+    public long getDroppedCount(Level level) {
+        return dropped[levelIndex(level)].sum();
+    }
+
+    public int size() {
+        return slots == null ? 0 : (int) (tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setDiscardLevel(String discardLevel) {
+        Level level = Level.toLevel(discardLevel, Level.INFO);
+        // Errors are never dropped
+        this.discardLevel = level.isGreaterOrEqual(Level.ERROR) ? Level.WARN : level;
+    }
+
+    public void setMaxShutdownMillis(long maxShutdownMillis) {
+        this.maxShutdownMillis = maxShutdownMillis;
+    }
+
+    // TRACE..ERROR -> 0..4
+    private static int levelIndex(Level level) {
+        return Math.max(0, Math.min(4, level.toInt() / Level.DEBUG_INT));
+    }
+
+    // Bounded MPSC queue after Vyukov: a slot's sequence tells whose turn it is
+    private boolean offer(ILoggingEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private ILoggingEvent poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1)
+            return null;
+        ILoggingEvent event = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    private void wakeWorker() {
+        if (workerParked.get() && workerParked.compareAndSet(true, false))
+            LockSupport.unpark(worker);
+    }
+
+    private void drainLoop() {
+        while (isStarted()) {
+            if (drainBatch() == 0) {
+                workerParked.set(true);
+                if (size() == 0 && isStarted())
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                workerParked.set(false);
+            }
+        }
+        while (drainBatch() > 0) {
+            // Flush what was logged before stop
+        }
+    }
+
+    private int drainBatch() {
+        int drained = 0;
+        ILoggingEvent event;
+        while (drained < batchSize && (event = poll()) != null) {
+            try {
+                appenders.appendLoopOnAppenders(event);
+            } catch (RuntimeException e) {
+                addError("Appender failed", e);
+            }
+            drained++;
+        }
+        if (drained > 0)
+            flush();
+        return drained;
+    }
+
+    private void flush() {
+        for (Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders(); it.hasNext(); ) {
+            if (it.next() instanceof OutputStreamAppender<ILoggingEvent> output && output.getOutputStream() != null) {
+                try {
+                    output.getOutputStream().flush();
+                } catch (IOException e) {
+                    addError("Flush failed for " + output.getName(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,47 @@
+package com.max.rest.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through one in {@code sampleRate} events below WARN from a single logger and denies the
+ * rest before an event is even created. WARN and ERROR always pass.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private String loggerName;
+    private int sampleRate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null for isXxxEnabled() checks, which must not consume a sample
+        if (format == null || sampleRate <= 1 || level.isGreaterOrEqual(Level.WARN) || !logger.getName().equals(loggerName))
+            return FilterReply.NEUTRAL;
+
+        return counter.getAndIncrement() % sampleRate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (loggerName == null) {
+            addError("No loggerName set for " + getName());
+            return;
+        }
+        super.start();
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
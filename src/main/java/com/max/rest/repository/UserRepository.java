@@ -1,19 +1,71 @@
 package com.max.rest.repository;
 
+import com.max.rest.dto.User;
 import com.max.rest.entity.UserEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserRepositoryCustom {
+    // Read paths select straight into the response shape: no managed entities, no password column
+    String USER = "new com.max.rest.dto.User(u.id, u.email, u.firstName, u.lastName, u.birthDate, u.address, u.phoneNumber, u.version)";
+
     Optional<UserEntity> findByEmail(String email);
 
     boolean existsByEmail(String email);
 
+    @Query("SELECT u.email FROM UserEntity u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     Page<UserEntity> findAllByBirthDateBetween(LocalDate fromDate, LocalDate toDate, Pageable pageable);
+
+    @Query("SELECT " + USER + " FROM UserEntity u WHERE u.id = :id")
+    Optional<User> findUserById(@Param("id") Long id);
+
+    @Query("SELECT " + USER + " FROM UserEntity u WHERE u.id IN :ids")
+    List<User> findUsersByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT " + USER + " FROM UserEntity u", countQuery = "SELECT COUNT(u) FROM UserEntity u")
+    Page<User> findAllUsers(Pageable pageable);
+
+    @Query(value = "SELECT " + USER + " FROM UserEntity u WHERE u.birthDate BETWEEN :fromDate AND :toDate",
+            countQuery = "SELECT COUNT(u) FROM UserEntity u WHERE u.birthDate BETWEEN :fromDate AND :toDate")
+    Page<User> findUsersByBirthDateBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+                                           Pageable pageable);
+
+    long countByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+
+    // Keyset pages: callers pass an unsorted PageRequest of page 0, so only a LIMIT is applied
+    @Query("SELECT " + USER + " FROM UserEntity u WHERE u.id > :afterId ORDER BY u.id")
+    List<User> findPageAfterId(@Param("afterId") long afterId, Pageable limit);
+
+    @Query("SELECT " + USER + " FROM UserEntity u WHERE u.birthDate BETWEEN :fromDate AND :toDate ORDER BY u.birthDate, u.id")
+    List<User> findFirstPageByBirthDate(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+                                        Pageable limit);
+
+    // Written as a lower bound on birth_date plus a tie-break so the (birth_date, id) index gives a range scan
+    @Query("SELECT " + USER + " FROM UserEntity u WHERE u.birthDate >= :afterDate AND u.birthDate <= :toDate "
+            + "AND (u.birthDate > :afterDate OR u.id > :afterId) ORDER BY u.birthDate, u.id")
+    List<User> findPageAfterBirthDate(@Param("afterDate") LocalDate afterDate, @Param("afterId") long afterId,
+                                      @Param("toDate") LocalDate toDate, Pageable limit);
+
+    // Bulk statements like these bypass entity listeners; callers update the in-process indexes themselves
+    @Modifying
+    @Query("DELETE FROM UserEntity u WHERE u.id = :id")
+    int deleteUserById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE UserEntity u SET u.password = :newPassword WHERE u.email = :email AND u.password = :oldPassword")
+    int updatePassword(@Param("email") String email, @Param("oldPassword") String oldPassword,
+                       @Param("newPassword") String newPassword);
 }
@@ -0,0 +1,13 @@
+package com.max.rest.repository;
+
+import java.util.Map;
+
+public interface UserRepositoryCustom {
+    /**
+     * Sets only the given {@code UserEntity} attributes of one user and increments its version in a
+     * single {@code UPDATE}, provided the row is still at {@code version}, or unconditionally when it
+     * is {@code null}. Returns the number of rows changed. Being a bulk statement, it bypasses entity
+     * listeners.
+     */
+    int updateColumns(Long id, Long version, Map<String, Object> changes);
+}
@@ -0,0 +1,35 @@
+package com.max.rest.repository;
+
+import com.max.rest.entity.UserEntity;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.util.Map;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int updateColumns(Long id, Long version, Map<String, Object> changes) {
+        if (changes.isEmpty())
+            throw new IllegalArgumentException("No columns to update");
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<UserEntity> update = builder.createCriteriaUpdate(UserEntity.class);
+        Root<UserEntity> user = update.from(UserEntity.class);
+        changes.forEach((attribute, value) -> update.set(user.get(attribute), value));
+        Path<Long> currentVersion = user.get("version");
+        update.set(currentVersion, builder.sum(currentVersion, 1L));
+        if (version != null)
+            update.where(builder.equal(user.get("id"), id), builder.equal(currentVersion, version));
+        else
+            update.where(builder.equal(user.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
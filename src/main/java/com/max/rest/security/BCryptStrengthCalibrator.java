@@ -0,0 +1,64 @@
+package com.max.rest.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.Arrays;
+
+/**
+ * Picks the bcrypt work factor whose hash time on this machine is closest to a target.
+ * <p>
+ * Each additional round doubles the cost, so only the lowest allowed strength is measured
+ * and the others are extrapolated from it.
+ */
+@Slf4j
+public final class BCryptStrengthCalibrator {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        if (minStrength < 4 || maxStrength > 31 || minStrength > maxStrength)
+            throw new IllegalArgumentException("Invalid bcrypt strength range " + minStrength + ".." + maxStrength);
+
+        double baseNanos = measure(minStrength);
+        int strength = pick(baseNanos, targetMillis, minStrength, maxStrength);
+        log.info("Calibrated bcrypt strength {} (~{} ms per hash, target {} ms)", strength,
+                Math.round(baseNanos * Math.pow(2, strength - minStrength) / 1_000_000), targetMillis);
+        return strength;
+    }
+
+    static int pick(double baseNanos, long targetMillis, int minStrength, int maxStrength) {
+        double targetNanos = targetMillis * 1_000_000.0;
+        int best = minStrength;
+        double bestDistance = Double.MAX_VALUE;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            // Compare on a log scale: one step up doubles the cost
+            double distance = Math.abs(Math.log(baseNanos * Math.pow(2, strength - minStrength) / targetNanos));
+            if (distance < bestDistance) {
+                best = strength;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    // Median of a few hashes, after a short warm-up for the JIT
+    private static double measure(int strength) {
+        String salt = BCrypt.gensalt(strength);
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            BCrypt.hashpw("calibration", salt);
+
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2];
+    }
+}
@@ -0,0 +1,37 @@
+package com.max.rest.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt encoder that treats any hash whose cost differs from its own strength as needing
+ * re-encoding, so hashes follow the configured strength both up and down.
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty())
+            return false;
+
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        if (!matcher.find())
+            return false;
+        return Integer.parseInt(matcher.group(1)) != strength;
+    }
+}
@@ -0,0 +1,161 @@
+package com.max.rest.security;
+
+import com.max.rest.configuration.JwtSigningProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Asymmetric keys for access tokens, indexed by {@code kid}.
+ * <p>
+ * With {@code ES256} and no configured keys an ephemeral key pair is generated, which is only
+ * suitable for a single instance: its tokens stop verifying on restart. The public half of every
+ * key is rendered once into a JWKS document for downstream services.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+
+    public static final String ES256 = "ES256";
+    private static final String HS512 = "HS512";
+    private static final int P256_FIELD_SIZE = 256;
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SigningKey activeKey;
+    private final Map<String, SigningKey> keys;
+    private final byte[] jwks;
+    private final String jwksETag;
+
+    @Autowired
+    public JwtKeyRing(JwtSigningProperties properties) {
+        this(properties.getAlgorithm(), properties.getKeys());
+    }
+
+    public JwtKeyRing(String algorithm, List<JwtSigningProperties.Key> configuredKeys) {
+        Map<String, SigningKey> ring = new LinkedHashMap<>();
+        if (ES256.equalsIgnoreCase(algorithm)) {
+            configuredKeys.stream().map(JwtKeyRing::load).forEach(key -> {
+                if (ring.putIfAbsent(key.kid(), key) != null)
+                    throw new IllegalStateException("Duplicate JWT signing key id " + key.kid());
+            });
+            if (ring.values().stream().noneMatch(key -> key.privateKey() != null)) {
+                SigningKey generated = generate();
+                log.warn("No ES256 signing key configured; generated ephemeral key {}", generated.kid());
+                ring.put(generated.kid(), generated);
+            }
+        } else if (!HS512.equalsIgnoreCase(algorithm)) {
+            throw new IllegalStateException("Unsupported JWT signing algorithm " + algorithm);
+        }
+
+        this.keys = Collections.unmodifiableMap(ring);
+        this.activeKey = ring.values().stream().filter(key -> key.privateKey() != null).findFirst().orElse(null);
+        this.jwks = renderJwks(ring.values()).getBytes(StandardCharsets.UTF_8);
+        this.jwksETag = '"' + BASE64_URL_ENCODER.encodeToString(sha256(jwks)) + '"';
+    }
+
+    /**
+     * Whether access tokens are signed with a key from this ring rather than the shared secret.
+     */
+    public boolean isEnabled() {
+        return activeKey != null;
+    }
+
+    public SigningKey getActiveKey() {
+        return activeKey;
+    }
+
+    public Collection<SigningKey> getKeys() {
+        return keys.values();
+    }
+
+    public SigningKey getKey(String kid) {
+        return keys.get(kid);
+    }
+
+    public byte[] getJwks() {
+        return jwks.clone();
+    }
+
+    public String getJwksETag() {
+        return jwksETag;
+    }
+
+    private static SigningKey load(JwtSigningProperties.Key key) {
+        try {
+            KeyFactory factory = KeyFactory.getInstance("EC");
+            PublicKey publicKey = factory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getMimeDecoder().decode(key.getPublicKey())));
+            if (!(publicKey instanceof ECPublicKey ecKey) || ecKey.getParams().getCurve().getField().getFieldSize() != P256_FIELD_SIZE)
+                throw new IllegalStateException("JWT signing keys must be P-256 EC keys");
+
+            PrivateKey privateKey = key.getPrivateKey() == null || key.getPrivateKey().isBlank() ? null
+                    : factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(key.getPrivateKey())));
+            String kid = key.getKid() == null || key.getKid().isBlank() ? thumbprint(ecKey) : key.getKid();
+            if (!KEY_ID.matcher(kid).matches())
+                throw new IllegalStateException("JWT signing key id must match " + KEY_ID.pattern());
+            return new SigningKey(kid, privateKey, ecKey);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid JWT signing key " + key.getKid(), e);
+        }
+    }
+
+    private static SigningKey generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair pair = generator.generateKeyPair();
+            ECPublicKey publicKey = (ECPublicKey) pair.getPublic();
+            return new SigningKey(thumbprint(publicKey), pair.getPrivate(), publicKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to generate JWT signing key", e);
+        }
+    }
+
+    private static String renderJwks(Collection<SigningKey> keys) {
+        StringJoiner json = new StringJoiner(",", "{\"keys\":[", "]}");
+        for (SigningKey key : keys) {
+            json.add("{\"kty\":\"EC\",\"crv\":\"P-256\",\"use\":\"sig\",\"alg\":\"" + ES256 + "\",\"kid\":\""
+                    + key.kid() + "\",\"x\":\"" + coordinate(key.publicKey().getW().getAffineX())
+                    + "\",\"y\":\"" + coordinate(key.publicKey().getW().getAffineY()) + "\"}");
+        }
+        return json.toString();
+    }
+
+    // RFC 7638 thumbprint: members in lexicographic order, no whitespace
+    private static String thumbprint(ECPublicKey key) {
+        String canonical = "{\"crv\":\"P-256\",\"kty\":\"EC\",\"x\":\"" + coordinate(key.getW().getAffineX())
+                + "\",\"y\":\"" + coordinate(key.getW().getAffineY()) + "\"}";
+        return BASE64_URL_ENCODER.encodeToString(sha256(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Unsigned, big-endian, left-padded to the 32-byte field size
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] padded = new byte[P256_FIELD_SIZE / 8];
+        int length = Math.min(bytes.length, padded.length);
+        System.arraycopy(bytes, bytes.length - length, padded, padded.length - length, length);
+        return BASE64_URL_ENCODER.encodeToString(padded);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public record SigningKey(String kid, PrivateKey privateKey, ECPublicKey publicKey) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.max.rest.security;
+
+import com.max.rest.exception.ServiceOverloadedException;
+import com.max.rest.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Re-encodes a user's password in the background after a successful login when the stored hash
+ * no longer matches the current encoding (other algorithm id or other cost).
+ * <p>
+ * Best effort: at most one rehash per email is in flight, a full queue or a busy hashing pool
+ * drops the request, and the hash is only replaced if it has not changed since it was verified.
+ */
+@Slf4j
+@Component
+public class PasswordRehasher implements DisposableBean {
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserService userService;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public PasswordRehasher(PasswordEncoder passwordEncoder, UserService userService,
+                            @Value("${app.password-hashing.rehash-queue-capacity}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.userService = userService;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-rehasher");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void rehashIfNeeded(String email, String rawPassword, String encodedPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword) || !pending.add(email))
+            return;
+
+        try {
+            executor.execute(() -> rehash(email, rawPassword, encodedPassword));
+        } catch (RejectedExecutionException e) {
+            pending.remove(email);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void rehash(String email, String rawPassword, String encodedPassword) {
+        try {
+            String rehashed = passwordEncoder.encode(rawPassword);
+            if (userService.updatePasswordHash(email, encodedPassword, rehashed))
+                log.debug("Rehashed password for user {}", email);
+        } catch (ServiceOverloadedException e) {
+            log.debug("Skipped password rehash for user {}: hashing pool is busy", email);
+        } catch (RuntimeException e) {
+            log.warn("Password rehash for user {} failed", email, e);
+        } finally {
+            pending.remove(email);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.max.rest.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.max.rest.dto.UserCredentials;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in, short-lived cache of credentials that recently passed a full password check.
+ * <p>
+ * Holds, per email, an HMAC of the verified password under a key generated at startup and the
+ * stored hash it was checked against; the password itself is never kept. A hit costs one HMAC
+ * and a constant-time comparison instead of a database read and a bcrypt round. Entries are
+ * dropped as soon as this instance changes a user's email or password; other instances only
+ * bound their staleness by the TTL.
+ */
+@Component
+public class VerifiedCredentialCache {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final Cache<String, Entry> cache;
+    private final SecretKey key;
+    private final ThreadLocal<Mac> mac;
+    // Bumped by every invalidation so a check that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public VerifiedCredentialCache(@Value("${app.password-hashing.credential-cache.enabled}") boolean enabled,
+                                   @Value("${app.password-hashing.credential-cache.ttl-seconds}") long ttlSeconds,
+                                   @Value("${app.password-hashing.credential-cache.maximum-size}") long maximumSize,
+                                   MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.verified-credentials");
+
+        try {
+            this.key = KeyGenerator.getInstance(ALGORITHM).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to generate credential cache key", e);
+        }
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached credentials if {@code rawPassword} is the password last verified for
+     * {@code email}, otherwise {@code null}.
+     */
+    public UserCredentials get(String email, String rawPassword) {
+        if (!enabled)
+            return null;
+
+        Entry entry = cache.getIfPresent(email);
+        if (entry == null || !MessageDigest.isEqual(entry.passwordMac, mac(email, rawPassword)))
+            return null;
+        return new UserCredentials(email, entry.storedHash);
+    }
+
+    /**
+     * Marker to take before reading the stored hash and to hand back to {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(String email, String rawPassword, String storedHash, long generationAtRead) {
+        if (!enabled)
+            return;
+
+        Entry entry = new Entry(mac(email, rawPassword), storedHash);
+        cache.asMap().compute(email, (key, current) -> generation.get() == generationAtRead ? entry : current);
+    }
+
+    /**
+     * Drops the entry for {@code email} now and, inside a transaction, again once it completes, so a
+     * login that read the old hash before the commit cannot re-populate it.
+     */
+    public void invalidate(String email) {
+        if (email != null)
+            invalidateAround(() -> cache.invalidate(email));
+    }
+
+    public void invalidateAll() {
+        invalidateAround(cache::invalidateAll);
+    }
+
+    private void invalidateAround(Runnable invalidation) {
+        generation.incrementAndGet();
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation.incrementAndGet();
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private byte[] mac(String email, String rawPassword) {
+        Mac instance = mac.get();
+        instance.update(email.getBytes(StandardCharsets.UTF_8));
+        instance.update((byte) 0);
+        return instance.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private record Entry(byte[] passwordMac, String storedHash) {
+    }
+}
@@ -8,4 +8,6 @@ public interface AuthService {
     JwtAccessResponse getAccessToken(String refreshToken);
 
     JwtRefreshResponse getRefreshToken(String refreshToken);
+
+    void logout(String accessToken);
 }
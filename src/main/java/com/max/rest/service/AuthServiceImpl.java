@@ -2,16 +2,15 @@ package com.max.rest.service;
 
 import com.max.rest.dto.*;
 import com.max.rest.exception.AuthException;
-import io.jsonwebtoken.Claims;
+import com.max.rest.security.PasswordRehasher;
+import com.max.rest.security.VerifiedCredentialCache;
+import com.max.rest.store.RefreshTokenStore;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
-
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -20,36 +19,35 @@ public class AuthServiceImpl implements AuthService {
     private final PasswordEncoder passwordEncoder;
 
     private final UserService userService;
-    private final Map<String, String> refreshStorage = new HashMap<>();
+    private final RefreshTokenStore refreshTokenStore;
     private final JwtProviderService jwtProvider;
+    private final PasswordRehasher passwordRehasher;
+    private final VerifiedCredentialCache credentialCache;
 
     @Override
     public JwtLoginResponse login(@NonNull UserCredentials authRequest) {
         if (authRequest.getEmail() == null || authRequest.getPassword() == null)
             throw new IllegalArgumentException("Email and password cannot be empty");
 
-        final UserCredentials userCredentials = userService.getUserCredentialsByEmail(authRequest.getEmail());
-
-        if (userCredentials == null || !passwordEncoder.matches(authRequest.getPassword(), userCredentials.getPassword()))
-            throw new AuthException("Invalid email or password");
+        UserCredentials userCredentials = credentialCache.get(authRequest.getEmail(), authRequest.getPassword());
+        if (userCredentials == null)
+            userCredentials = verifyCredentials(authRequest);
 
         final String accessToken = jwtProvider.generateAccessToken(userCredentials);
         final String refreshToken = jwtProvider.generateRefreshToken(userCredentials);
-        refreshStorage.put(userCredentials.getEmail(), refreshToken);
+        refreshTokenStore.save(userCredentials.getEmail(), refreshToken);
 
         return new JwtLoginResponse(accessToken, refreshToken);
     }
 
     @Override
     public JwtAccessResponse getAccessToken(@NonNull String refreshToken) {
-        if (!jwtProvider.isValidRefreshToken(refreshToken))
+        final TokenVerification verification = jwtProvider.verifyRefresh(refreshToken);
+        if (!verification.isValid())
             throw new AuthException("Invalid refresh token");
 
-        Claims claims = jwtProvider.getRefreshClaims(refreshToken);
-        String email = claims.getSubject();
-        String saveRefreshToken = refreshStorage.get(email);
-
-        if (saveRefreshToken == null || !saveRefreshToken.equals(refreshToken))
+        String email = verification.getSubject();
+        if (!refreshTokenStore.matches(email, refreshToken))
             throw new AuthException("Mismatched or expired refresh token");
 
         UserCredentials user = userService.getUserCredentialsByEmail(email);
@@ -59,22 +57,44 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     public JwtRefreshResponse getRefreshToken(@NonNull String refreshToken) {
-        if (!jwtProvider.isValidRefreshToken(refreshToken))
+        final TokenVerification verification = jwtProvider.verifyRefresh(refreshToken);
+        if (!verification.isValid())
             throw new AuthException("Invalid refresh token");
 
-        Claims claims = jwtProvider.getRefreshClaims(refreshToken);
-        String email = claims.getSubject();
-        String saveRefreshToken = refreshStorage.get(email);
+        String email = verification.getSubject();
+        if (!refreshTokenStore.matches(email, refreshToken))
+            throw new AuthException("Mismatched or expired refresh token");
 
-        if (saveRefreshToken != null && saveRefreshToken.equals(refreshToken)) {
-            UserCredentials user = userService.getUserCredentialsByEmail(email);
-            String newRefreshToken = jwtProvider.generateRefreshToken(user);
-            refreshStorage.put(user.getEmail(), newRefreshToken);
+        UserCredentials user = userService.getUserCredentialsByEmail(email);
+        String newRefreshToken = jwtProvider.generateRefreshToken(user);
 
-            return new JwtRefreshResponse(newRefreshToken);
-        } else
+        // Only one of several concurrent renewals with the same token may win
+        if (!refreshTokenStore.rotate(email, refreshToken, newRefreshToken))
             throw new AuthException("Mismatched or expired refresh token");
 
+        return new JwtRefreshResponse(newRefreshToken);
+    }
+
+    @Override
+    public void logout(@NonNull String accessToken) {
+        final TokenVerification verification = jwtProvider.verifyAccess(accessToken);
+        if (!verification.isValid())
+            throw new AuthException("Invalid access token");
+
+        jwtProvider.revokeAccess(accessToken, verification);
+        refreshTokenStore.remove(verification.getSubject());
+    }
+
+    private UserCredentials verifyCredentials(UserCredentials authRequest) {
+        final long generation = credentialCache.generation();
+        final UserCredentials userCredentials = userService.getUserCredentialsByEmail(authRequest.getEmail());
+
+        if (userCredentials == null || !passwordEncoder.matches(authRequest.getPassword(), userCredentials.getPassword()))
+            throw new AuthException("Invalid email or password");
+
+        passwordRehasher.rehashIfNeeded(userCredentials.getEmail(), authRequest.getPassword(), userCredentials.getPassword());
+        credentialCache.put(userCredentials.getEmail(), authRequest.getPassword(), userCredentials.getPassword(), generation);
+        return userCredentials;
     }
 
 }
\ No newline at end of file
@@ -1,14 +1,16 @@
 package com.max.rest.service;
 
+import com.max.rest.dto.TokenVerification;
 import com.max.rest.dto.UserCredentials;
-import io.jsonwebtoken.Claims;
+
+import java.util.List;
 
 public interface JwtProviderService {
     String generateAccessToken(UserCredentials user);
     String generateRefreshToken(UserCredentials user);
-    boolean isValidAccessToken(String accessToken);
-    boolean isValidRefreshToken(String refreshToken);
-    Claims getAccessClaims(String token);
-    Claims getRefreshClaims(String token);
+    TokenVerification verifyAccess(String accessToken);
+    List<TokenVerification> verifyAccessBatch(List<String> accessTokens);
+    TokenVerification verifyRefresh(String refreshToken);
+    void revokeAccess(String accessToken, TokenVerification verification);
     String maskToken(String token);
 }
@@ -1,122 +1,143 @@
 package com.max.rest.service;
 
+import com.max.rest.cache.TokenDigest;
+import com.max.rest.cache.TokenRevocationList;
+import com.max.rest.cache.VerifiedTokenCache;
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
 import com.max.rest.dto.UserCredentials;
-import com.max.rest.exception.AuthException;
-import io.jsonwebtoken.*;
+import com.max.rest.security.JwtKeyRing;
+import com.max.rest.utils.EcdsaJwtCodec;
+import com.max.rest.utils.HmacJwtCodec;
+import com.max.rest.utils.JwtCodec;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import io.jsonwebtoken.security.SignatureException;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 @Slf4j
 @Service
 public class JwtProviderServiceImpl implements JwtProviderService{
 
-    private final SecretKey JWT_ACCESS_SECRET;
-    private final SecretKey JWT_REFRESH_SECRET;
-    private final Integer MINUTES;
-    private final Integer DAYS;
+    private final long accessLifetimeMillis;
+    private final long refreshLifetimeMillis;
+    private final JwtCodec accessCodec;
+    // Set when access tokens are signed asymmetrically; HMAC access tokens are then only accepted until
+    // legacyAccessDeadline, one access token lifetime after startup, by when those issued before the switch expired
+    private final EcdsaJwtCodec asymmetricAccessCodec;
+    private final long legacyAccessDeadline;
+    private final Clock clock;
+    private final HmacJwtCodec hmacAccessCodec;
+    private final HmacJwtCodec refreshCodec;
+    private final VerifiedTokenCache verifiedAccessTokens;
+    private final TokenRevocationList revocationList;
+    private final int parallelThreshold;
 
+    @Autowired
     public JwtProviderServiceImpl(
             @Value("${app.jwt.secret.access}") String jwtAccessSecret,
             @Value("${app.jwt.secret.refresh}") String jwtRefreshSecret,
             @Value("${app.jwt.minutes}") Integer minutes,
-            @Value("${app.jwt.days}") Integer days
+            @Value("${app.jwt.days}") Integer days,
+            @Value("${app.jwt.batch.parallel-threshold}") int parallelThreshold,
+            VerifiedTokenCache verifiedAccessTokens,
+            TokenRevocationList revocationList,
+            JwtKeyRing keyRing
     ) {
-        this.JWT_ACCESS_SECRET = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtAccessSecret));
-        this.JWT_REFRESH_SECRET = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtRefreshSecret));
-        this.MINUTES = minutes;
-        this.DAYS = days;
+        this(jwtAccessSecret, jwtRefreshSecret, minutes, days, parallelThreshold, verifiedAccessTokens, revocationList,
+                keyRing, Clock.systemUTC());
+    }
+
+    JwtProviderServiceImpl(String jwtAccessSecret, String jwtRefreshSecret, Integer minutes, Integer days,
+                           int parallelThreshold, VerifiedTokenCache verifiedAccessTokens,
+                           TokenRevocationList revocationList, JwtKeyRing keyRing, Clock clock) {
+        final SecretKey accessSecret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtAccessSecret));
+        final SecretKey refreshSecret = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtRefreshSecret));
+        this.accessLifetimeMillis = Duration.ofMinutes(minutes).toMillis();
+        this.refreshLifetimeMillis = Duration.ofDays(days).toMillis();
+        this.hmacAccessCodec = new HmacJwtCodec(accessSecret);
+        this.asymmetricAccessCodec = keyRing.isEnabled() ? new EcdsaJwtCodec(keyRing) : null;
+        this.accessCodec = asymmetricAccessCodec != null ? asymmetricAccessCodec : hmacAccessCodec;
+        this.refreshCodec = new HmacJwtCodec(refreshSecret);
+        this.clock = clock;
+        this.legacyAccessDeadline = clock.millis() + accessLifetimeMillis;
+        this.verifiedAccessTokens = verifiedAccessTokens;
+        this.revocationList = revocationList;
+        this.parallelThreshold = parallelThreshold;
     }
 
     @Override
     public String generateAccessToken(@NonNull UserCredentials user) {
-        final LocalDateTime now = LocalDateTime.now();
-        final Instant accessExpirationInstant = now.plusMinutes(MINUTES).atZone(ZoneId.systemDefault()).toInstant();
-        final Date accessExpiration = Date.from(accessExpirationInstant);
-        return Jwts.builder()
-                .setSubject(user.getEmail())
-                .setExpiration(accessExpiration)
-                .signWith(JWT_ACCESS_SECRET)
-                .compact();
+        final long accessExpiration = (System.currentTimeMillis() + accessLifetimeMillis) / 1000;
+        return accessCodec.mint(user.getEmail(), accessExpiration);
     }
 
     @Override
     public String generateRefreshToken(@NonNull UserCredentials user) {
-        final LocalDateTime now = LocalDateTime.now();
-        final Instant refreshExpirationInstant = now.plusDays(DAYS).atZone(ZoneId.systemDefault()).toInstant();
-        final Date refreshExpiration = Date.from(refreshExpirationInstant);
-        return Jwts.builder()
-                .setSubject(user.getEmail())
-                .setExpiration(refreshExpiration)
-                .signWith(JWT_REFRESH_SECRET)
-                .compact();
+        final long refreshExpiration = (System.currentTimeMillis() + refreshLifetimeMillis) / 1000;
+        return refreshCodec.mint(user.getEmail(), refreshExpiration);
     }
 
     @Override
-    public boolean isValidAccessToken(String accessToken) {
-        return isValidToken(accessToken, JWT_ACCESS_SECRET);
-    }
+    public TokenVerification verifyAccess(String accessToken) {
+        if (accessToken == null)
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
 
-    @Override
-    public boolean isValidRefreshToken(String refreshToken) {
-        return isValidToken(refreshToken, JWT_REFRESH_SECRET);
+        TokenDigest digest = TokenDigest.of(accessToken);
+        if (revocationList.isRevoked(digest))
+            return TokenVerification.rejected(TokenStatus.REVOKED);
+
+        boolean legacy = asymmetricAccessCodec != null && !asymmetricAccessCodec.issued(accessToken);
+        if (legacy && clock.millis() >= legacyAccessDeadline)
+            return TokenVerification.rejected(TokenStatus.UNSUPPORTED);
+
+        TokenVerification cached = verifiedAccessTokens.get(digest);
+        if (cached != null)
+            return cached;
+
+        JwtCodec codec = asymmetricAccessCodec == null || legacy ? hmacAccessCodec : asymmetricAccessCodec;
+        TokenVerification verification = verify(accessToken, codec);
+        if (verification.isValid())
+            verifiedAccessTokens.put(digest, verification);
+        return verification;
     }
 
-    private boolean isValidToken(String token, @NonNull Key secret) {
-        String maskedToken = maskToken(token);
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secret)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (ExpiredJwtException expEx) {
-            log.warn("Token is expired: {}", maskedToken);
-        } catch (UnsupportedJwtException unsEx) {
-            log.error("Unsupported jwt: {}", maskedToken, unsEx);
-        } catch (MalformedJwtException mjEx) {
-            log.warn("Malformed jwt: {}", maskedToken);
-        } catch (SignatureException sEx) {
-            log.error("Invalid signature", sEx);
-        } catch (IndexOutOfBoundsException e) {
-            log.warn("Invalid token: {}", maskedToken);
-        }
-        return false;
+    @Override
+    public List<TokenVerification> verifyAccessBatch(List<String> accessTokens) {
+        TokenVerification[] results = new TokenVerification[accessTokens.size()];
+        // Large batches are spread over the common fork-join pool; the calling thread takes part too
+        if (results.length >= parallelThreshold)
+            Arrays.parallelSetAll(results, i -> verifyAccess(accessTokens.get(i)));
+        else
+            Arrays.setAll(results, i -> verifyAccess(accessTokens.get(i)));
+        return Arrays.asList(results);
     }
 
     @Override
-    public Claims getAccessClaims(@NonNull String token) {
-        return getClaims(token, JWT_ACCESS_SECRET);
+    public void revokeAccess(@NonNull String accessToken, @NonNull TokenVerification verification) {
+        if (verification.isValid() && verification.getExpiration() != null)
+            revocationList.revoke(TokenDigest.of(accessToken), verification.getExpiration());
     }
 
     @Override
-    public Claims getRefreshClaims(@NonNull String token) {
-        return getClaims(token, JWT_REFRESH_SECRET);
+    public TokenVerification verifyRefresh(String refreshToken) {
+        return verify(refreshToken, refreshCodec);
     }
 
-    private Claims getClaims(@NonNull String token, @NonNull Key secret) {
-        String maskedToken = maskToken(token);
-        try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(secret)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-        } catch (Exception e) {
-            log.warn("Error while parsing claims from token: {}", maskedToken, e);
-            throw new AuthException("Error while parsing claims from token");
-        }
+    private TokenVerification verify(String token, JwtCodec codec) {
+        TokenVerification verification = codec.verify(token);
+        if (!verification.isValid() && log.isDebugEnabled())
+            log.debug("Token rejected ({}): {}", verification.getStatus(), maskToken(token));
+        return verification;
     }
 
     @Override
@@ -126,4 +147,4 @@ public class JwtProviderServiceImpl implements JwtProviderService{
         }
         return token;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.max.rest.service;
+
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserRequest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chunk of users that passed the email checks and had their passwords hashed, ready to insert.
+ * Holds the email reservations of {@code accepted} until it is inserted or discarded.
+ */
+public record PreparedUsers(List<UserBatchResult> rejected,
+                            List<Map.Entry<Integer, UserRequest>> accepted,
+                            List<String> hashes,
+                            List<String> reserved) {
+}
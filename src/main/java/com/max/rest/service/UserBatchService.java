@@ -0,0 +1,29 @@
+package com.max.rest.service;
+
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserRequest;
+
+import java.util.List;
+import java.util.Map;
+
+public interface UserBatchService {
+    /**
+     * Creates the given users, keyed by their position in the caller's request, and returns one
+     * result per key in key order. Requests are expected to have passed field validation.
+     */
+    List<UserBatchResult> saveUsers(Map<Integer, UserRequest> requests);
+
+    /**
+     * First half of {@link #saveUsers} for one chunk: reserves and checks the emails and hashes the
+     * passwords. The result must be passed to {@link #insertUsers} or {@link #discard}.
+     */
+    PreparedUsers prepareUsers(Map<Integer, UserRequest> chunk);
+
+    /**
+     * Second half of {@link #saveUsers} for one chunk: inserts it and releases its reservations.
+     * Returns the results of the whole chunk, including the items rejected while preparing it.
+     */
+    List<UserBatchResult> insertUsers(PreparedUsers prepared);
+
+    void discard(PreparedUsers prepared);
+}
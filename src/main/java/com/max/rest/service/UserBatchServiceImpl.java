@@ -0,0 +1,208 @@
+package com.max.rest.service;
+
+import com.max.rest.cache.RegisteredEmailFilter;
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserRequest;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.exception.ServiceOverloadedException;
+import com.max.rest.repository.UserRepository;
+import com.max.rest.security.BulkheadPasswordEncoder;
+import com.max.rest.utils.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in chunks, each in its own transaction, so one failed chunk does not undo the rest.
+ * Preparing and inserting a chunk are separate steps, so a caller can hash the next chunk while
+ * the previous one is being written.
+ * <p>
+ * Per chunk: emails are reserved on this instance, the ones the registered-email filter cannot rule
+ * out are checked with a single {@code IN} query, passwords are hashed in parallel, and the rows
+ * go out as JDBC insert batches.
+ */
+@Slf4j
+@Service
+public class UserBatchServiceImpl implements UserBatchService {
+
+    private static final String ALREADY_REGISTERED = "User with email '%s' already registered";
+    private static final String NOT_PROCESSED = "Not created: password hashing is overloaded, retry this item later";
+    private static final String NOT_STORED = "Not created: the row was refused by the database";
+
+    private final UserRepository userRepository;
+
+    private final UserMapper userMapper;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final RegisteredEmailFilter registeredEmails;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    @Autowired
+    public UserBatchServiceImpl(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder,
+                                RegisteredEmailFilter registeredEmails, PlatformTransactionManager transactionManager,
+                                @Value("${app.users.batch.chunk-size}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.passwordEncoder = passwordEncoder;
+        this.registeredEmails = registeredEmails;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<UserBatchResult> saveUsers(Map<Integer, UserRequest> requests) {
+        List<UserBatchResult> results = new ArrayList<>(requests.size());
+        List<Map.Entry<Integer, UserRequest>> entries = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        for (Map.Entry<Integer, UserRequest> entry : requests.entrySet()) {
+            if (seen.add(entry.getValue().getEmail().toLowerCase(Locale.ROOT)))
+                entries.add(entry);
+            else
+                results.add(UserBatchResult.rejected(entry.getKey(), List.of(
+                        "Email '" + entry.getValue().getEmail() + "' appears more than once in this batch")));
+        }
+
+        for (int start = 0; start < entries.size(); start += chunkSize) {
+            Map<Integer, UserRequest> chunk = new LinkedHashMap<>();
+            entries.subList(start, Math.min(entries.size(), start + chunkSize))
+                    .forEach(entry -> chunk.put(entry.getKey(), entry.getValue()));
+            PreparedUsers prepared;
+            try {
+                prepared = prepareUsers(chunk);
+            } catch (ServiceOverloadedException e) {
+                // Earlier chunks are already committed; report the rest so a retry resends only those
+                log.warn("Password hashing overloaded, {} of {} batch items not processed", entries.size() - start,
+                        entries.size());
+                entries.subList(start, entries.size()).forEach(entry ->
+                        results.add(UserBatchResult.rejected(entry.getKey(), List.of(NOT_PROCESSED))));
+                break;
+            }
+            results.addAll(insertUsers(prepared));
+        }
+
+        results.sort(Comparator.comparingInt(UserBatchResult::getIndex));
+        return results;
+    }
+
+    @Override
+    public PreparedUsers prepareUsers(Map<Integer, UserRequest> chunk) {
+        List<UserBatchResult> rejected = new ArrayList<>();
+        List<Map.Entry<Integer, UserRequest>> accepted = new ArrayList<>(chunk.size());
+        List<String> reserved = new ArrayList<>(chunk.size());
+        try {
+            for (Map.Entry<Integer, UserRequest> entry : chunk.entrySet()) {
+                if (registeredEmails.reserve(entry.getValue().getEmail())) {
+                    reserved.add(entry.getValue().getEmail());
+                    accepted.add(entry);
+                } else
+                    rejected.add(rejectedAsRegistered(entry));
+            }
+
+            Set<String> existing = findRegistered(accepted);
+            accepted.removeIf(entry -> {
+                if (!existing.contains(entry.getValue().getEmail().toLowerCase(Locale.ROOT)))
+                    return false;
+                rejected.add(rejectedAsRegistered(entry));
+                return true;
+            });
+
+            List<String> hashes = accepted.isEmpty() ? List.of()
+                    : encodeAll(accepted.stream().map(entry -> entry.getValue().getPassword()).toList());
+            return new PreparedUsers(rejected, accepted, hashes, reserved);
+        } catch (RuntimeException e) {
+            reserved.forEach(registeredEmails::release);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<UserBatchResult> insertUsers(PreparedUsers prepared) {
+        List<Map.Entry<Integer, UserRequest>> accepted = prepared.accepted();
+        List<UserBatchResult> results = new ArrayList<>(prepared.rejected());
+        try {
+            if (accepted.isEmpty())
+                return results;
+
+            List<UserEntity> entities = new ArrayList<>(accepted.size());
+            for (int i = 0; i < accepted.size(); i++)
+                entities.add(userMapper.userRequestToUserEntity(accepted.get(i).getValue(), prepared.hashes().get(i)));
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    userRepository.saveAll(entities);
+                    userRepository.flush();
+                });
+                for (int i = 0; i < accepted.size(); i++)
+                    results.add(UserBatchResult.created(accepted.get(i).getKey(), userMapper.userEntityToUser(entities.get(i))));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance registered one of these emails after the check, or a row breaks another
+                // constraint; find it row by row
+                log.warn("Batch chunk of {} users rolled back on a concurrent registration, retrying one by one",
+                        accepted.size());
+                for (int i = 0; i < accepted.size(); i++)
+                    results.add(saveOne(accepted.get(i), prepared.hashes().get(i)));
+            }
+            return results;
+        } finally {
+            discard(prepared);
+        }
+    }
+
+    @Override
+    public void discard(PreparedUsers prepared) {
+        prepared.reserved().forEach(registeredEmails::release);
+    }
+
+    private UserBatchResult saveOne(Map.Entry<Integer, UserRequest> entry, String hash) {
+        UserEntity entity = userMapper.userRequestToUserEntity(entry.getValue(), hash);
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAndFlush(entity));
+            return UserBatchResult.created(entry.getKey(), userMapper.userEntityToUser(entity));
+        } catch (DataIntegrityViolationException e) {
+            // Only a clash on the unique email means already registered; a read-write transaction asks the primary
+            String email = entry.getValue().getEmail();
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> userRepository.existsByEmail(email))))
+                return rejectedAsRegistered(entry);
+
+            log.warn("Batch item {} refused by the database: {}", entry.getKey(), e.getMostSpecificCause().getMessage());
+            return UserBatchResult.rejected(entry.getKey(), List.of(NOT_STORED));
+        }
+    }
+
+    // One IN query for the emails the filter cannot rule out; lower-cased like the unique index compares them
+    private Set<String> findRegistered(List<Map.Entry<Integer, UserRequest>> entries) {
+        List<String> candidates = entries.stream()
+                .map(entry -> entry.getValue().getEmail())
+                .filter(registeredEmails::mightBeRegistered)
+                .toList();
+        if (candidates.isEmpty())
+            return Collections.emptySet();
+
+        return userRepository.findExistingEmails(candidates).stream()
+                .map(email -> email.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    private List<String> encodeAll(List<String> rawPasswords) {
+        if (passwordEncoder instanceof BulkheadPasswordEncoder bulkhead)
+            return bulkhead.encodeAll(rawPasswords);
+        return rawPasswords.parallelStream().map(passwordEncoder::encode).toList();
+    }
+
+    private static UserBatchResult rejectedAsRegistered(Map.Entry<Integer, UserRequest> entry) {
+        return UserBatchResult.rejected(entry.getKey(),
+                List.of(String.format(ALREADY_REGISTERED, entry.getValue().getEmail())));
+    }
+}
@@ -0,0 +1,10 @@
+package com.max.rest.service;
+
+import java.io.OutputStream;
+
+public interface UserExportService {
+    /**
+     * Writes every user to {@code output} as NDJSON in id order and returns how many were written.
+     */
+    long exportUsers(OutputStream output);
+}
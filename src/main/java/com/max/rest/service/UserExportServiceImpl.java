@@ -0,0 +1,91 @@
+package com.max.rest.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.max.rest.dto.User;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.utils.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Streams the whole user table through one forward-only, read-only query.
+ * <p>
+ * The JDBC fetch size bounds how many rows the driver holds (MySQL needs {@code useCursorFetch} for
+ * that), entities are loaded read-only so Hibernate keeps no dirty-checking snapshots, and the
+ * persistence context is cleared every {@code clear-interval} rows, so heap use does not grow with
+ * the table.
+ */
+@Slf4j
+@Service
+public class UserExportServiceImpl implements UserExportService {
+
+    private static final String SELECT = "SELECT u FROM UserEntity u ORDER BY u.id";
+
+    private final EntityManager entityManager;
+
+    private final UserMapper userMapper;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter userWriter;
+
+    private final int fetchSize;
+
+    private final int clearInterval;
+
+    public UserExportServiceImpl(EntityManager entityManager, UserMapper userMapper, ObjectMapper objectMapper,
+                                 @Value("${app.users.export.fetch-size}") int fetchSize,
+                                 @Value("${app.users.export.clear-interval}") int clearInterval) {
+        this.entityManager = entityManager;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        // Flushing is left to the clear interval instead of after every row
+        this.userWriter = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+        this.clearInterval = clearInterval;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream output) {
+        long start = System.nanoTime();
+        long exported = 0;
+        try (Stream<UserEntity> rows = entityManager.createQuery(SELECT, UserEntity.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // Each row ends with its own line break instead of Jackson's space between root values
+            generator.setRootValueSeparator(null);
+            Iterator<UserEntity> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                userWriter.writeValue(generator, userMapper.userEntityToUser(iterator.next()));
+                generator.writeRaw('\n');
+                if (++exported % clearInterval == 0) {
+                    entityManager.clear();
+                    generator.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Exported {} users in {} ms", exported, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return exported;
+    }
+}
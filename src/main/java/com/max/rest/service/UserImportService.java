@@ -0,0 +1,15 @@
+package com.max.rest.service;
+
+import com.max.rest.dto.UserImportFormat;
+import com.max.rest.dto.UserImportSummary;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface UserImportService {
+    /**
+     * Creates the users read from {@code input} and streams an NDJSON report to {@code report}: one
+     * line per rejected row, then the summary, which is also returned.
+     */
+    UserImportSummary importUsers(InputStream input, UserImportFormat format, OutputStream report);
+}
@@ -0,0 +1,358 @@
+package com.max.rest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserBatchStatus;
+import com.max.rest.dto.UserImportError;
+import com.max.rest.dto.UserImportFormat;
+import com.max.rest.dto.UserImportSummary;
+import com.max.rest.dto.UserRequest;
+import com.max.rest.exception.ServiceOverloadedException;
+import com.max.rest.utils.BoundedPipe;
+import com.max.rest.utils.UserImportReader;
+import com.max.rest.utils.UserRequestValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports users from a stream of any length with constant memory.
+ * <p>
+ * Each import runs as four stages on their own threads, joined by {@link BoundedPipe}s: parse,
+ * validate into chunks, check emails and hash passwords, insert. The calling thread writes the
+ * report. A stage that falls behind fills the pipe in front of it, which stalls every stage up to
+ * the parser and so stops reading the request body, so at most {@code queue-capacity} chunks per
+ * pipe are in flight. Rejected rows are held in a temp file until the body has been read, since a
+ * client that only reads the response after sending its upload would otherwise block the report
+ * and, through the pipes, the parser. Chunks commit independently: an import that fails midway
+ * keeps the rows it reported as created. Emails are reserved from hashing until insert, so a duplicate within the
+ * file is rejected like an already registered one.
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final String[] STAGES = {"parse", "validate", "prepare", "insert"};
+
+    private final UserBatchService userBatchService;
+
+    private final UserRequestValidator userRequestValidator;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    private final int queueCapacity;
+
+    private final Semaphore permits;
+
+    private final ExecutorService executor;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final Counter rowsRead;
+
+    private final Counter rowsCreated;
+
+    private final Counter rowsRejected;
+
+    private final Timer prepareTimer;
+
+    private final Timer insertTimer;
+
+    public UserImportServiceImpl(UserBatchService userBatchService, UserRequestValidator userRequestValidator,
+                                 ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                 @Value("${app.users.import.chunk-size}") int chunkSize,
+                                 @Value("${app.users.import.queue-capacity}") int queueCapacity,
+                                 @Value("${app.users.import.max-concurrent}") int maxConcurrent) {
+        this.userBatchService = userBatchService;
+        this.userRequestValidator = userRequestValidator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+        this.permits = new Semaphore(maxConcurrent);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrent * STAGES.length, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.rowsRead = Counter.builder("users.import.rows").tag("outcome", "read").register(meterRegistry);
+        this.rowsCreated = Counter.builder("users.import.rows").tag("outcome", "created").register(meterRegistry);
+        this.rowsRejected = Counter.builder("users.import.rows").tag("outcome", "rejected").register(meterRegistry);
+        this.prepareTimer = Timer.builder("users.import.chunk").tag("stage", "prepare").register(meterRegistry);
+        this.insertTimer = Timer.builder("users.import.chunk").tag("stage", "insert").register(meterRegistry);
+        Gauge.builder("users.import.active", active, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public UserImportSummary importUsers(InputStream input, UserImportFormat format, OutputStream report) {
+        if (!permits.tryAcquire())
+            throw new ServiceOverloadedException("Too many imports in progress", 1);
+
+        active.incrementAndGet();
+        try {
+            UserImportReader reader = UserImportReader.open(input, format, objectMapper);
+            return new ImportRun(reader, report).run();
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private record Chunk(List<UserBatchResult> rejected, Map<Integer, UserRequest> requests) {
+    }
+
+    private record PreparedChunk(List<UserBatchResult> rejected, PreparedUsers prepared) {
+    }
+
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private final class ImportRun {
+
+        private final UserImportReader reader;
+        private final Writer writer;
+        private final long startNanos = System.nanoTime();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final BoundedPipe<UserImportReader.Row> rows = new BoundedPipe<>(queueCapacity * chunkSize);
+        private final BoundedPipe<Chunk> chunks = new BoundedPipe<>(queueCapacity);
+        private final BoundedPipe<PreparedChunk> preparedChunks = new BoundedPipe<>(queueCapacity);
+        private final BoundedPipe<List<UserBatchResult>> results = new BoundedPipe<>(queueCapacity);
+        private final List<BoundedPipe<?>> pipes = List.of(rows, chunks, preparedChunks, results);
+        private volatile boolean inputRead;
+        private Path spoolFile;
+        private Writer spool;
+        private long read;
+        private long created;
+        private long rejected;
+
+        private ImportRun(UserImportReader reader, OutputStream report) {
+            this.reader = reader;
+            this.writer = new BufferedWriter(new OutputStreamWriter(report, StandardCharsets.UTF_8));
+        }
+
+        UserImportSummary run() {
+            List<Future<?>> stages = List.of(
+                    executor.submit(() -> guard(this::parse)),
+                    executor.submit(() -> guard(this::validate)),
+                    executor.submit(() -> guard(this::prepare)),
+                    executor.submit(() -> guard(this::insert)));
+
+            guard(this::report);
+            for (Future<?> stage : stages) {
+                try {
+                    stage.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    abort(e);
+                } catch (ExecutionException e) {
+                    abort(e.getCause());
+                }
+            }
+            preparedChunks.drain().forEach(chunk -> userBatchService.discard(chunk.prepared()));
+
+            UserImportSummary summary = new UserImportSummary(read, created, rejected,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    failure.get() != null ? "Import stopped after " + read + " rows" : null);
+            if (failure.get() != null)
+                log.error("User import stopped after {} rows, created: {}", read, created, failure.get());
+            else
+                log.info("User import finished: {} rows, created: {}, rejected: {} in {} ms", read, created, rejected,
+                        summary.getElapsedMillis());
+            try {
+                releaseSpool();
+                writeLine(writer, summary);
+                writer.flush();
+            } catch (IOException e) {
+                log.warn("Unable to write user import summary: {}", e.getMessage());
+            } finally {
+                discardSpool();
+            }
+            return summary;
+        }
+
+        private void parse() throws InterruptedException {
+            UserImportReader.Row row;
+            while ((row = reader.next()) != null) {
+                rowsRead.increment();
+                rows.put(row);
+            }
+            inputRead = true;
+            rows.close();
+        }
+
+        private void validate() throws InterruptedException {
+            Chunk chunk = newChunk();
+            UserImportReader.Row row;
+            while ((row = rows.take()) != null) {
+                int line = Math.toIntExact(row.line());
+                List<String> errors = row.request() != null ? userRequestValidator.validate(row.request()) : row.errors();
+                if (errors.isEmpty())
+                    chunk.requests().put(line, row.request());
+                else
+                    chunk.rejected().add(UserBatchResult.rejected(line, errors));
+
+                if (chunk.requests().size() + chunk.rejected().size() >= chunkSize) {
+                    chunks.put(chunk);
+                    chunk = newChunk();
+                }
+            }
+            if (!chunk.requests().isEmpty() || !chunk.rejected().isEmpty())
+                chunks.put(chunk);
+            chunks.close();
+        }
+
+        private void prepare() throws InterruptedException {
+            Chunk chunk;
+            while ((chunk = chunks.take()) != null) {
+                Map<Integer, UserRequest> requests = chunk.requests();
+                PreparedUsers prepared = prepareTimer.record(() -> userBatchService.prepareUsers(requests));
+                try {
+                    preparedChunks.put(new PreparedChunk(chunk.rejected(), prepared));
+                } catch (InterruptedException | RuntimeException e) {
+                    userBatchService.discard(prepared);
+                    throw e;
+                }
+            }
+            preparedChunks.close();
+        }
+
+        private void insert() throws InterruptedException {
+            PreparedChunk chunk;
+            while ((chunk = preparedChunks.take()) != null) {
+                PreparedUsers prepared = chunk.prepared();
+                List<UserBatchResult> chunkResults = new ArrayList<>(chunk.rejected());
+                chunkResults.addAll(insertTimer.record(() -> userBatchService.insertUsers(prepared)));
+                chunkResults.sort(Comparator.comparingInt(UserBatchResult::getIndex));
+                results.put(chunkResults);
+            }
+            results.close();
+        }
+
+        private void report() throws InterruptedException, IOException {
+            long lastProgress = startNanos;
+            List<UserBatchResult> chunkResults;
+            while ((chunkResults = results.take()) != null) {
+                long chunkCreated = 0;
+                for (UserBatchResult result : chunkResults) {
+                    if (result.getStatus() == UserBatchStatus.CREATED)
+                        chunkCreated++;
+                    else
+                        writeLine(errors(), new UserImportError(result.getIndex(), result.getErrors()));
+                }
+                created += chunkCreated;
+                rejected += chunkResults.size() - chunkCreated;
+                read = created + rejected;
+                rowsCreated.increment(chunkCreated);
+                rowsRejected.increment(chunkResults.size() - chunkCreated);
+                if (inputRead) {
+                    releaseSpool();
+                    writer.flush();
+                }
+
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    double seconds = (now - startNanos) / 1e9;
+                    log.info("User import progress: {} rows, created: {}, rejected: {}, {} rows/s", read, created,
+                            rejected, Math.round(read / seconds));
+                }
+            }
+        }
+
+        private void writeLine(Writer out, Object value) throws IOException {
+            try {
+                out.write(objectMapper.writeValueAsString(value));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unable to write import report", e);
+            }
+            out.write('\n');
+        }
+
+        // The response once the request body has been read, the spool file before that
+        private Writer errors() throws IOException {
+            if (inputRead) {
+                releaseSpool();
+                return writer;
+            }
+            if (spool == null) {
+                spoolFile = Files.createTempFile("user-import-", ".ndjson");
+                spool = Files.newBufferedWriter(spoolFile, StandardCharsets.UTF_8);
+            }
+            return spool;
+        }
+
+        private void releaseSpool() throws IOException {
+            if (spool == null)
+                return;
+            spool.close();
+            try (Reader spooled = Files.newBufferedReader(spoolFile, StandardCharsets.UTF_8)) {
+                spooled.transferTo(writer);
+            }
+            discardSpool();
+        }
+
+        private void discardSpool() {
+            if (spoolFile == null)
+                return;
+            try {
+                if (spool != null)
+                    spool.close();
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                log.warn("Unable to delete user import spool {}: {}", spoolFile, e.getMessage());
+            }
+            spool = null;
+            spoolFile = null;
+        }
+
+        private Chunk newChunk() {
+            return new Chunk(new ArrayList<>(), new LinkedHashMap<>());
+        }
+
+        // Runs a stage; the first failure aborts every pipe so the other stages stop too
+        private void guard(Stage stage) {
+            try {
+                stage.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+            } catch (Throwable e) {
+                abort(e);
+            }
+        }
+
+        private void abort(Throwable cause) {
+            if (cause instanceof CancellationException && failure.get() != null)
+                return;
+            if (failure.compareAndSet(null, cause))
+                pipes.forEach(BoundedPipe::abort);
+        }
+    }
+}
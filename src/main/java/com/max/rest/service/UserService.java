@@ -3,27 +3,44 @@ package com.max.rest.service;
 import com.max.rest.dto.User;
 import com.max.rest.dto.UserCredentials;
 import com.max.rest.dto.UserRequest;
+import com.max.rest.dto.UserSlice;
 import com.max.rest.dto.UserUpdateRequest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
+import java.util.Set;
 
 public interface UserService {
     UserCredentials getUserCredentialsByEmail(String email);
 
+    boolean updatePasswordHash(String email, String currentHash, String newHash);
+
     Page<User> getAllUsers(PageRequest pageRequest);
 
     Page<User> searchUsers(LocalDate fromDate, LocalDate toDate, PageRequest pageRequest);
 
-    User updateUser(Long id, UserRequest userRequest);
+    UserSlice scrollUsers(String cursor, int size, boolean includeTotal);
+
+    UserSlice scrollSearchUsers(LocalDate fromDate, LocalDate toDate, String cursor, int size, boolean includeTotal);
+
+    /**
+     * Replaces the user; with non-null {@code acceptedVersions}, only if it is still at one of them.
+     */
+    User updateUser(Long id, UserRequest userRequest, Set<Long> acceptedVersions);
 
     User saveUser(UserRequest userRequest);
 
-    User partialUpdateUser(Long id, UserUpdateRequest request);
+    User partialUpdateUser(Long id, UserUpdateRequest request, Set<Long> acceptedVersions);
 
     User getUserById(Long id);
 
+    /**
+     * Returns the version last seen for the user on this instance without reading the row, or
+     * {@code null} if none is cached.
+     */
+    Long getKnownVersion(Long id);
+
     void deleteUserById(Long id);
 
     boolean isValidBirthDate(LocalDate birthDate, int minAge);
@@ -1,131 +1,198 @@
 package com.max.rest.service;
 
+import com.max.rest.cache.BirthDateIndex;
+import com.max.rest.cache.RegisteredEmailFilter;
+import com.max.rest.cache.UserEntityCache;
+import com.max.rest.cache.UserVersionCache;
 import com.max.rest.dto.User;
 import com.max.rest.dto.UserCredentials;
 import com.max.rest.dto.UserRequest;
+import com.max.rest.dto.UserSlice;
 import com.max.rest.dto.UserUpdateRequest;
 import com.max.rest.entity.UserEntity;
 import com.max.rest.exception.NotFoundException;
+import com.max.rest.exception.PreconditionFailedException;
 import com.max.rest.exception.RegistrationException;
 import com.max.rest.exception.ValidationException;
 import com.max.rest.repository.UserRepository;
+import com.max.rest.security.VerifiedCredentialCache;
+import com.max.rest.utils.UserCursor;
 import com.max.rest.utils.UserMapper;
-import org.springframework.beans.BeanUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.ObjectError;
 
-import javax.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.function.Consumer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final UserMapper userMapper;
 
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
+    private final VerifiedCredentialCache credentialCache;
+
+    private final BirthDateIndex birthDateIndex;
+
+    private final UserEntityCache userCache;
+
+    private final RegisteredEmailFilter registeredEmails;
+
+    private final UserVersionCache versionCache;
+
+    private final TransactionTemplate transactionTemplate;
+
     @Autowired
-    public UserServiceImpl(UserMapper userMapper, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserMapper userMapper, UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           VerifiedCredentialCache credentialCache, BirthDateIndex birthDateIndex,
+                           UserEntityCache userCache, RegisteredEmailFilter registeredEmails,
+                           UserVersionCache versionCache, PlatformTransactionManager transactionManager) {
         this.userMapper = userMapper;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
+        this.birthDateIndex = birthDateIndex;
+        this.userCache = userCache;
+        this.registeredEmails = registeredEmails;
+        this.versionCache = versionCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
-    public User updateUser(Long id, UserRequest userRequest) {
-        UserEntity userEntity = userRepository
-                .findById(id).orElseThrow(() -> new NotFoundException(
-                        "User with id '" + id + "' not found"));
-
-        String email = userRequest.getEmail();
-        if (email != null && userRepository.existsByEmail(email) && !email.equals(userEntity.getEmail())) {
-            throw new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
-                    "User with email '" + email + " already registered")));
-        }
-
-        // Update data for user from DTO
-        BeanUtils.copyProperties(userRequest, userEntity);
-
-        userEntity.setPassword(passwordEncoder.encode(userRequest.getPassword()));
-
-        userEntity = userRepository.save(userEntity);
-
-        return userMapper.userEntityToUser(userEntity);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public User updateUser(Long id, UserRequest userRequest, Set<Long> acceptedVersions) {
+        return update(id, acceptedVersions, current -> new User(id, userRequest.getEmail(), userRequest.getFirstName(),
+                        userRequest.getLastName(), userRequest.getBirthDate(), userRequest.getAddress(),
+                        userRequest.getPhoneNumber()),
+                passwordEncoder.encode(userRequest.getPassword()));
     }
 
     @Override
     public User saveUser(UserRequest userRequest) {
         String email = userRequest.getEmail();
-        if (userRepository.existsByEmail(email))
+        claimEmail(email, () -> new RegistrationException(
+                "User with email '" + email + "' already registered"));
+
+        UserEntity userEntity;
+        try {
+            userEntity = userRepository.save(userMapper.userRequestToUserEntity(userRequest));
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
             throw new RegistrationException(
                     "User with email '" + email + "' already registered");
-
-        UserEntity userEntity = userRepository.save(userMapper.userRequestToUserEntity(userRequest));
+        } finally {
+            registeredEmails.release(email);
+        }
 
         return userMapper.userEntityToUser(userEntity);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<User> getAllUsers(PageRequest pageRequest) {
-        Page<UserEntity> entities = userRepository.findAll(pageRequest);
-        return entities.map(userMapper::userEntityToUser);
+        return userRepository.findAllUsers(pageRequest);
     }
 
     @Override
     public void deleteUserById(Long id) {
-        if (userRepository.existsById(id))
-            userRepository.deleteById(id);
-        else
+        if (userRepository.deleteUserById(id) == 0)
             throw new NotFoundException("User with id '" + id + "' not found");
+
+        birthDateIndex.removeAfterCommit(id);
+        userCache.invalidate(id);
+        versionCache.invalidate(id);
+        // Only the id is known here; dropping every entry is cheaper than looking up the email
+        credentialCache.invalidateAll();
     }
 
     @Override
-    public User partialUpdateUser(Long id, UserUpdateRequest userRequest) {
-        UserEntity existingUser = userRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(
-                        "User with id '" + id + "' not found"));
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public User partialUpdateUser(Long id, UserUpdateRequest userRequest, Set<Long> acceptedVersions) {
+        String password = userRequest.getPassword();
+        return update(id, acceptedVersions, current -> new User(id,
+                        valueOrCurrent(userRequest.getEmail(), current.getEmail()),
+                        valueOrCurrent(userRequest.getFirstName(), current.getFirstName()),
+                        valueOrCurrent(userRequest.getLastName(), current.getLastName()),
+                        valueOrCurrent(userRequest.getBirthDate(), current.getBirthDate()),
+                        valueOrCurrent(userRequest.getAddress(), current.getAddress()),
+                        valueOrCurrent(userRequest.getPhoneNumber(), current.getPhoneNumber())),
+                password != null ? passwordEncoder.encode(password) : null);
+    }
 
-        String email = userRequest.getEmail();
-        if (email != null && !email.equals(existingUser.getEmail()) && userRepository.existsByEmail(email)) {
-            throw new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
-                    "User with email '" + email + " already registered")));
+    @Override
+    @Transactional(readOnly = true)
+    public Page<User> searchUsers(LocalDate fromDate, LocalDate toDate, PageRequest pageRequest) {
+        // The index answers in (birthDate, id) order, so a caller asking for another order goes to the database
+        if (birthDateIndex.isReady() && pageRequest.getSort().isUnsorted()) {
+            BirthDateIndex.RangePage page = birthDateIndex.page(fromDate, toDate, pageRequest.getOffset(),
+                    pageRequest.getPageSize());
+            return new PageImpl<>(findAllInOrder(page.ids()), pageRequest, page.total());
         }
 
-        if (userRequest.getPassword() != null) {
-            updateField(passwordEncoder.encode(userRequest.getPassword()), existingUser::setPassword);
-        }
+        return userRepository.findUsersByBirthDateBetween(fromDate, toDate, pageRequest);
+    }
 
-        updateField(userRequest.getEmail(), existingUser::setEmail);
-        updateField(userRequest.getFirstName(), existingUser::setFirstName);
-        updateField(userRequest.getLastName(), existingUser::setLastName);
-        updateField(userRequest.getBirthDate(), existingUser::setBirthDate);
-        updateField(userRequest.getAddress(), existingUser::setAddress);
-        updateField(userRequest.getPhoneNumber(), existingUser::setPhoneNumber);
+    @Override
+    @Transactional(readOnly = true)
+    public UserSlice scrollUsers(String cursor, int size, boolean includeTotal) {
+        UserCursor after = UserCursor.decode(cursor, UserCursor.Order.ID);
+        List<User> rows = userRepository.findPageAfterId(after != null ? after.id() : Long.MIN_VALUE,
+                PageRequest.of(0, size + 1));
 
-        return userMapper.userEntityToUser(existingUser);
+        User last = rows.size() > size ? rows.get(size - 1) : null;
+        String nextCursor = last != null ? UserCursor.afterId(last.getId()).encode() : null;
+        return toSlice(rows, size, nextCursor, includeTotal ? userRepository.count() : null);
     }
 
     @Override
-    public Page<User> searchUsers(LocalDate fromDate, LocalDate toDate, PageRequest pageRequest) {
-        return userRepository.findAllByBirthDateBetween(fromDate, toDate, pageRequest)
-                .map(userMapper::userEntityToUser);
+    @Transactional(readOnly = true)
+    public UserSlice scrollSearchUsers(LocalDate fromDate, LocalDate toDate, String cursor, int size, boolean includeTotal) {
+        UserCursor after = UserCursor.decode(cursor, UserCursor.Order.BIRTH_DATE_ID);
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<User> rows = after == null
+                ? userRepository.findFirstPageByBirthDate(fromDate, toDate, limit)
+                : userRepository.findPageAfterBirthDate(after.birthDate(), after.id(), toDate, limit);
+
+        User last = rows.size() > size ? rows.get(size - 1) : null;
+        String nextCursor = last != null ? UserCursor.afterBirthDate(last.getBirthDate(), last.getId()).encode() : null;
+        return toSlice(rows, size, nextCursor,
+                includeTotal ? countByBirthDate(fromDate, toDate) : null);
     }
 
     @Override
     public UserCredentials getUserCredentialsByEmail(String email) {
-        UserEntity entity = userRepository
-                .findByEmail(email).orElseThrow(() -> new NotFoundException(
+        UserEntity entity = userCache
+                .findByEmail(email, userRepository::findByEmail).orElseThrow(() -> new NotFoundException(
                         "User with email '" + email + "' not found"));
 
         return UserCredentials.builder()
@@ -134,13 +201,26 @@ public class UserServiceImpl implements UserService {
                 .build();
     }
 
+    @Override
+    public boolean updatePasswordHash(String email, String currentHash, String newHash) {
+        userCache.invalidateEmail(email);
+        return userRepository.updatePassword(email, currentHash, newHash) > 0;
+    }
+
+    // Fills the caches, so it reads from the primary: a lagging replica would be cached past the invalidation
     @Override
     public User getUserById(Long id) {
-        UserEntity userEntity = userRepository
-                .findById(id).orElseThrow(() -> new NotFoundException(
+        long generation = versionCache.generation();
+        User user = userCache
+                .findUser(id, userRepository::findUserById).orElseThrow(() -> new NotFoundException(
                         "User with id '" + id + "' not found"));
+        versionCache.record(id, user.getVersion(), generation);
+        return user;
+    }
 
-        return userMapper.userEntityToUser(userEntity);
+    @Override
+    public Long getKnownVersion(Long id) {
+        return versionCache.get(id);
     }
 
     @Override
@@ -149,10 +229,159 @@ public class UserServiceImpl implements UserService {
         return minBirthDate.isAfter(birthDate);
     }
 
-    private <T> void updateField(T field, Consumer<T> setter) {
-        if (field instanceof String && StringUtils.hasText((String) field) || field != null) {
-            setter.accept(field);
+    // Reserves the email on this instance first; the database is only asked when the filter cannot rule it out
+    private void claimEmail(String email, Supplier<RuntimeException> taken) {
+        if (!registeredEmails.reserve(email))
+            throw taken.get();
+
+        if (registeredEmails.mightBeRegistered(email) && userRepository.existsByEmail(email)) {
+            registeredEmails.release(email);
+            throw taken.get();
+        }
+    }
+
+    private ValidationException emailTaken(String email) {
+        return new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
+                "User with email '" + email + " already registered")));
+    }
+
+    private long countByBirthDate(LocalDate fromDate, LocalDate toDate) {
+        return birthDateIndex.isReady()
+                ? birthDateIndex.count(fromDate, toDate)
+                : userRepository.countByBirthDateBetween(fromDate, toDate);
+    }
+
+    // One batched load by primary key; rows deleted since the index was read are skipped
+    private List<User> findAllInOrder(long[] ids) {
+        if (ids.length == 0)
+            return Collections.emptyList();
+
+        Map<Long, User> users = userRepository.findUsersByIdIn(Arrays.stream(ids).boxed().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // One extra row is fetched only to tell whether another page exists
+    private UserSlice toSlice(List<User> rows, int size, String nextCursor, Long total) {
+        return new UserSlice(rows.size() > size ? rows.subList(0, size) : rows, nextCursor, total);
+    }
+
+    // Read as a projection: the diff needs the current values, not a managed entity
+    private User findCurrent(Long id) {
+        return userRepository.findUserById(id).orElseThrow(() -> new NotFoundException(
+                "User with id '" + id + "' not found"));
+    }
+
+    private static Map<String, Object> changedColumns(User current, User updated) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        putIfChanged(changes, "email", current.getEmail(), updated.getEmail());
+        putIfChanged(changes, "firstName", current.getFirstName(), updated.getFirstName());
+        putIfChanged(changes, "lastName", current.getLastName(), updated.getLastName());
+        putIfChanged(changes, "birthDate", current.getBirthDate(), updated.getBirthDate());
+        putIfChanged(changes, "address", current.getAddress(), updated.getAddress());
+        putIfChanged(changes, "phoneNumber", current.getPhoneNumber(), updated.getPhoneNumber());
+        return changes;
+    }
+
+    private static void putIfChanged(Map<String, Object> changes, String attribute, Object current, Object updated) {
+        if (!Objects.equals(current, updated))
+            changes.put(attribute, updated);
+    }
+
+    private static <T> T valueOrCurrent(T value, T current) {
+        return value != null ? value : current;
+    }
+
+    /*
+     * Writes only what differs from the row just read, and only if no other write moved its version in
+     * between. Each attempt is its own transaction: under REPEATABLE READ a re-read in the same one would
+     * see the same stale version, or the database refuses the write outright. Without If-Match the last
+     * attempt writes unconditionally, so a client that sent no precondition never gets a 412.
+     */
+    private User update(Long id, Set<Long> acceptedVersions, UnaryOperator<User> apply, String encodedPassword) {
+        for (int attempt = 1; ; attempt++) {
+            boolean unconditional = acceptedVersions == null && attempt == MAX_UPDATE_ATTEMPTS;
+            try {
+                User result = transactionTemplate.execute(status ->
+                        tryUpdate(id, acceptedVersions, apply, encodedPassword, unconditional));
+                if (result != null)
+                    return result;
+            } catch (ConcurrencyFailureException e) {
+                if (unconditional || attempt == MAX_UPDATE_ATTEMPTS)
+                    throw e;
+            }
+            if (attempt == MAX_UPDATE_ATTEMPTS)
+                throw new PreconditionFailedException("User with id '" + id + "' is being modified concurrently");
+        }
+    }
+
+    // Returns null when another write got in between the read and the conditional UPDATE
+    private User tryUpdate(Long id, Set<Long> acceptedVersions, UnaryOperator<User> apply, String encodedPassword,
+                           boolean unconditional) {
+        User current = findCurrent(id);
+        if (acceptedVersions != null && !acceptedVersions.contains(current.getVersion()))
+            throw new PreconditionFailedException("User with id '" + id + "' has been modified");
+
+        User updated = apply.apply(current);
+        Map<String, Object> changes = changedColumns(current, updated);
+        if (encodedPassword != null)
+            changes.put("password", encodedPassword);
+        if (changes.isEmpty())
+            return current;
+
+        if (encodedPassword != null || changes.containsKey("email")) {
+            credentialCache.invalidate(current.getEmail());
+            credentialCache.invalidate(updated.getEmail());
+        }
+        if (!updateColumns(id, unconditional ? null : current.getVersion(), updated, changes))
+            return null;
+
+        if (!unconditional) {
+            updated.setVersion(current.getVersion() + 1);
+            return updated;
+        }
+        // A transaction always reads its own writes, so this is the row as it now stands
+        return findCurrent(id);
+    }
+
+    // One UPDATE of the changed columns; a taken email is only noticed through the unique index
+    private boolean updateColumns(Long id, Long version, User updated, Map<String, Object> changes) {
+        userCache.invalidate(id);
+        versionCache.invalidate(id);
+        try {
+            if (userRepository.updateColumns(id, version, changes) == 0) {
+                if (version == null)
+                    throw new NotFoundException("User with id '" + id + "' not found");
+                return false;
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (changes.containsKey("email") && isEmailConflict(e))
+                throw emailTaken(updated.getEmail());
+            throw e;
+        }
+
+        // The bulk statement skips the entity listeners that keep these in step
+        if (changes.containsKey("email"))
+            registeredEmails.add(updated.getEmail());
+        if (changes.containsKey("birthDate"))
+            birthDateIndex.putAfterCommit(id, updated.getBirthDate());
+        return true;
+    }
+
+    // email is the only unique column besides the key, and the key is never updated
+    private static boolean isEmailConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String detail = violation.getConstraintName() != null ? violation.getConstraintName()
+                        : String.valueOf(violation.getSQLException().getMessage());
+                return detail.toLowerCase(Locale.ROOT).contains("email");
+            }
         }
+        return false;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.max.rest.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local refresh token store.
+ * <p>
+ * Keeps one fixed-size fingerprint per email in a {@link ConcurrentHashMap}; every change to an
+ * email runs inside {@code compute}, so the expiry index and the optional journal see the changes
+ * for that email in the same order as the map does.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jwt.refresh-store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRefreshTokenStore implements RefreshTokenStore, DisposableBean {
+
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private final Map<String, RefreshTokenEntry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Expiration> expirations = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Expiration::expiresAt).thenComparing(Expiration::email));
+    private final long ttlMillis;
+    private final RefreshTokenJournal journal;
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public InMemoryRefreshTokenStore(
+            @Value("${app.jwt.days}") int days,
+            @Value("${app.jwt.refresh-store.sweep-interval-seconds}") int sweepIntervalSeconds,
+            @Value("${app.jwt.refresh-store.journal.enabled}") boolean journalEnabled,
+            @Value("${app.jwt.refresh-store.journal.path}") String journalPath,
+            @Value("${app.jwt.refresh-store.journal.capacity-mb}") int journalCapacityMb
+    ) throws IOException {
+        this(Duration.ofDays(days), Duration.ofSeconds(sweepIntervalSeconds),
+                journalEnabled ? new RefreshTokenJournal(Path.of(journalPath), journalCapacityBytes(journalCapacityMb)) : null);
+    }
+
+    // A single mapping is indexed by int, so the journal has to stay under 2 GiB
+    static int journalCapacityBytes(int capacityMb) {
+        long bytes = (long) capacityMb * MEGABYTE;
+        if (capacityMb <= 0 || bytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("app.jwt.refresh-store.journal.capacity-mb must be between 1 and "
+                    + Integer.MAX_VALUE / MEGABYTE + ", was " + capacityMb);
+        return (int) bytes;
+    }
+
+    public InMemoryRefreshTokenStore(Duration ttl, Duration sweepInterval, RefreshTokenJournal journal) {
+        this.ttlMillis = ttl.toMillis();
+        this.journal = journal;
+
+        if (journal != null) {
+            journal.replay(System.currentTimeMillis()).forEach((email, entry) -> {
+                entries.put(email, entry);
+                expirations.add(new Expiration(entry.expiresAt(), email));
+            });
+            log.info("Restored {} refresh tokens from journal", entries.size());
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(String email, String refreshToken) {
+        RefreshTokenEntry entry = RefreshTokenEntry.of(refreshToken, System.currentTimeMillis() + ttlMillis);
+        entries.compute(email, (key, current) -> replace(key, current, entry));
+    }
+
+    @Override
+    public boolean matches(String email, String refreshToken) {
+        RefreshTokenEntry entry = entries.get(email);
+        return entry != null && entry.matches(refreshToken, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean rotate(String email, String currentToken, String newToken) {
+        long now = System.currentTimeMillis();
+        RefreshTokenEntry entry = RefreshTokenEntry.of(newToken, now + ttlMillis);
+        boolean[] rotated = new boolean[1];
+        entries.computeIfPresent(email, (key, current) -> {
+            if (!current.matches(currentToken, now))
+                return current;
+            rotated[0] = true;
+            return replace(key, current, entry);
+        });
+        return rotated[0];
+    }
+
+    @Override
+    public void remove(String email) {
+        entries.computeIfPresent(email, (key, current) -> replace(key, current, null));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops every entry whose expiry has passed, in expiry order, stopping at the first live one.
+     */
+    public int evictExpired() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Expiration head : expirations) {
+            if (head.expiresAt() > now)
+                break;
+            if (!expirations.remove(head))
+                continue;
+
+            boolean[] removed = new boolean[1];
+            entries.computeIfPresent(head.email(), (key, current) -> {
+                if (current.expiresAt() != head.expiresAt())
+                    return current;
+                removed[0] = true;
+                if (journal != null)
+                    journal.appendRemove(key);
+                return null;
+            });
+            if (removed[0])
+                evicted++;
+        }
+        return evicted;
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+        if (journal != null)
+            journal.close();
+    }
+
+    // Runs under the map's lock for this email
+    private RefreshTokenEntry replace(String email, RefreshTokenEntry current, RefreshTokenEntry next) {
+        if (current != null)
+            expirations.remove(new Expiration(current.expiresAt(), email));
+        if (next != null)
+            expirations.add(new Expiration(next.expiresAt(), email));
+
+        if (journal != null) {
+            if (next != null)
+                journal.appendPut(email, next);
+            else
+                journal.appendRemove(email);
+        }
+        return next;
+    }
+
+    private void maintain() {
+        try {
+            int evicted = evictExpired();
+            if (evicted > 0)
+                log.debug("Evicted {} expired refresh tokens", evicted);
+
+            if (journal != null) {
+                if (journal.size() > journal.capacity() / 2)
+                    journal.compact();
+                journal.flush();
+            }
+        } catch (RuntimeException e) {
+            log.error("Refresh token store maintenance failed", e);
+        }
+    }
+
+    private record Expiration(long expiresAt, String email) {
+    }
+}
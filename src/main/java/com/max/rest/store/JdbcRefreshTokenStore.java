@@ -0,0 +1,270 @@
+package com.max.rest.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.max.rest.cache.TokenDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Refresh token store shared by every instance through the {@code refresh_tokens} table.
+ * <p>
+ * Writes are queued and group-committed by a single writer thread: whatever accumulates within a
+ * short window is executed as JDBC batches in one transaction, and each caller waits for the
+ * commit that carries its write. Reads go through a short-lived local cache; a cached hash that
+ * does not match is always re-read from the table, so a token rotated on another instance is
+ * accepted here immediately. The token it replaced may still match here for at most the cache TTL;
+ * rotation itself is a conditional update and never trusts the cache.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.jwt.refresh-store.type", havingValue = "jdbc")
+public class JdbcRefreshTokenStore implements RefreshTokenStore, DisposableBean {
+
+    private static final String UPSERT = "INSERT INTO refresh_tokens (email, token_hash, expires_at) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE token_hash = VALUES(token_hash), expires_at = VALUES(expires_at)";
+    private static final String ROTATE = "UPDATE refresh_tokens SET token_hash = ?, expires_at = ? "
+            + "WHERE email = ? AND token_hash = ? AND expires_at > ?";
+    private static final String DELETE = "DELETE FROM refresh_tokens WHERE email = ?";
+    private static final String SELECT = "SELECT token_hash, expires_at FROM refresh_tokens WHERE email = ?";
+    private static final String PURGE = "DELETE FROM refresh_tokens WHERE expires_at <= ? LIMIT ?";
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMillis;
+    private final int batchSize;
+    private final long batchWindowMillis;
+    private final int purgeChunkSize;
+    private final Cache<String, StoredHash> cache;
+    private final BlockingQueue<Write> writes;
+    private final Thread writer;
+    private final ScheduledExecutorService purger;
+    private volatile boolean running = true;
+
+    @Autowired
+    public JdbcRefreshTokenStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.jwt.days}") int days,
+            @Value("${app.jwt.refresh-store.sweep-interval-seconds}") int purgeIntervalSeconds,
+            @Value("${app.jwt.refresh-store.jdbc.batch-size}") int batchSize,
+            @Value("${app.jwt.refresh-store.jdbc.batch-window-millis}") long batchWindowMillis,
+            @Value("${app.jwt.refresh-store.jdbc.cache-ttl-millis}") long cacheTtlMillis,
+            @Value("${app.jwt.refresh-store.jdbc.purge-chunk-size}") int purgeChunkSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMillis = Duration.ofDays(days).toMillis();
+        this.batchSize = batchSize;
+        this.batchWindowMillis = batchWindowMillis;
+        this.purgeChunkSize = purgeChunkSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMillis))
+                .build();
+        this.writes = new ArrayBlockingQueue<>(batchSize * 16);
+
+        this.writer = new Thread(this::writeLoop, "refresh-token-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalSeconds, purgeIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void save(String email, String refreshToken) {
+        byte[] hash = TokenDigest.sha256(refreshToken);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        await(new Write(Operation.UPSERT, email, hash, null, expiresAt));
+        cache.put(email, new StoredHash(hash, expiresAt));
+    }
+
+    @Override
+    public boolean matches(String email, String refreshToken) {
+        byte[] hash = TokenDigest.sha256(refreshToken);
+        long now = System.currentTimeMillis();
+
+        StoredHash cached = cache.getIfPresent(email);
+        if (cached != null && cached.matches(hash, now))
+            return true;
+
+        StoredHash stored = load(email);
+        if (stored == null) {
+            cache.invalidate(email);
+            return false;
+        }
+        cache.put(email, stored);
+        return stored.matches(hash, now);
+    }
+
+    @Override
+    public boolean rotate(String email, String currentToken, String newToken) {
+        byte[] hash = TokenDigest.sha256(newToken);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        boolean rotated = await(new Write(Operation.ROTATE, email, hash, TokenDigest.sha256(currentToken), expiresAt));
+        if (rotated)
+            cache.put(email, new StoredHash(hash, expiresAt));
+        else
+            cache.invalidate(email);
+        return rotated;
+    }
+
+    @Override
+    public void remove(String email) {
+        await(new Write(Operation.DELETE, email, null, null, 0));
+        cache.invalidate(email);
+    }
+
+    /**
+     * Deletes expired rows in chunks of {@code purge-chunk-size}, one short statement at a time.
+     */
+    public int purgeExpired() {
+        int purged = 0;
+        try {
+            long now = System.currentTimeMillis();
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE, now, purgeChunkSize);
+                purged += deleted;
+            } while (deleted == purgeChunkSize && running);
+
+            if (purged > 0)
+                log.debug("Purged {} expired refresh tokens", purged);
+        } catch (RuntimeException e) {
+            log.error("Refresh token purge failed", e);
+        }
+        return purged;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        writer.interrupt();
+        purger.shutdownNow();
+    }
+
+    private StoredHash load(String email) {
+        List<StoredHash> rows = jdbcTemplate.query(SELECT,
+                (rs, rowNum) -> new StoredHash(rs.getBytes("token_hash"), rs.getLong("expires_at")), email);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private boolean await(Write write) {
+        try {
+            if (!writes.offer(write, WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new IllegalStateException("Refresh token write queue is full");
+            return write.result.get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while storing refresh token", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to store refresh token", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out while storing refresh token", e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Write first = writes.take();
+                batch.add(first);
+                if (batchWindowMillis > 0 && writes.size() < batchSize - 1)
+                    Thread.sleep(batchWindowMillis);
+                writes.drainTo(batch, batchSize - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Write> batch) {
+        try {
+            boolean[] results = transactionTemplate.execute(status -> execute(batch));
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result.complete(results[i]);
+        } catch (RuntimeException e) {
+            log.error("Refresh token batch of {} writes failed", batch.size(), e);
+            batch.forEach(write -> write.result.completeExceptionally(e));
+        }
+    }
+
+    // Consecutive writes of the same kind go out as one JDBC batch; order within the group is kept
+    private boolean[] execute(List<Write> batch) {
+        boolean[] results = new boolean[batch.size()];
+        long now = System.currentTimeMillis();
+        int start = 0;
+        while (start < batch.size()) {
+            Operation operation = batch.get(start).operation;
+            int end = start;
+            while (end < batch.size() && batch.get(end).operation == operation)
+                end++;
+
+            List<Write> group = batch.subList(start, end);
+            int[] counts = switch (operation) {
+                case UPSERT -> jdbcTemplate.batchUpdate(UPSERT, group.stream()
+                        .map(w -> new Object[]{w.email, w.hash, w.expiresAt}).toList());
+                case ROTATE -> jdbcTemplate.batchUpdate(ROTATE, group.stream()
+                        .map(w -> new Object[]{w.hash, w.expiresAt, w.email, w.expectedHash, now}).toList());
+                case DELETE -> jdbcTemplate.batchUpdate(DELETE, group.stream()
+                        .map(w -> new Object[]{w.email}).toList());
+            };
+            for (int i = 0; i < counts.length; i++)
+                results[start + i] = operation != Operation.ROTATE || counts[i] > 0;
+            start = end;
+        }
+        return results;
+    }
+
+    private enum Operation {
+        UPSERT, ROTATE, DELETE
+    }
+
+    private static final class Write {
+        private final Operation operation;
+        private final String email;
+        private final byte[] hash;
+        private final byte[] expectedHash;
+        private final long expiresAt;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Write(Operation operation, String email, byte[] hash, byte[] expectedHash, long expiresAt) {
+            this.operation = operation;
+            this.email = email;
+            this.hash = hash;
+            this.expectedHash = expectedHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record StoredHash(byte[] hash, long expiresAt) {
+
+        boolean matches(byte[] candidate, long now) {
+            return expiresAt > now && MessageDigest.isEqual(hash, candidate);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.max.rest.store;
+
+import com.max.rest.cache.TokenDigest;
+
+/**
+ * Fixed-size record of a refresh token: its 128-bit fingerprint and expiry in epoch millis.
+ */
+record RefreshTokenEntry(long high, long low, long expiresAt) {
+
+    static RefreshTokenEntry of(String refreshToken, long expiresAt) {
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        return new RefreshTokenEntry(digest.high(), digest.low(), expiresAt);
+    }
+
+    boolean matches(String refreshToken, long now) {
+        if (expiresAt <= now)
+            return false;
+
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        return digest.high() == high && digest.low() == low;
+    }
+}
@@ -0,0 +1,178 @@
+package com.max.rest.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only, memory-mapped log of refresh token changes.
+ * <p>
+ * Record layout: {@code [op:1][emailLength:2][email][high:8][low:8][expiresAt:8]}. The op byte is
+ * written last, so a record torn by a crash reads as the end of the log. When the log fills up
+ * it is rewritten from a snapshot of the live entries.
+ */
+@Slf4j
+public class RefreshTokenJournal implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int FIXED_RECORD_SIZE = 1 + 2 + 8 + 8 + 8;
+
+    private final Path path;
+    private int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    public RefreshTokenJournal(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        map(path);
+    }
+
+    /**
+     * Reads the log from the start and returns the last state of every email that has not expired.
+     * Leaves the write position at the end of the valid records.
+     */
+    public synchronized Map<String, RefreshTokenEntry> replay(long now) {
+        Map<String, RefreshTokenEntry> entries = new HashMap<>();
+        buffer.position(0);
+        while (buffer.remaining() >= FIXED_RECORD_SIZE) {
+            int start = buffer.position();
+            byte op = buffer.get();
+            if (op != PUT && op != REMOVE) {
+                buffer.position(start);
+                break;
+            }
+            int emailLength = Short.toUnsignedInt(buffer.getShort());
+            if (buffer.remaining() < emailLength + 24) {
+                buffer.position(start);
+                break;
+            }
+            byte[] email = new byte[emailLength];
+            buffer.get(email);
+            long high = buffer.getLong();
+            long low = buffer.getLong();
+            long expiresAt = buffer.getLong();
+
+            String key = new String(email, StandardCharsets.UTF_8);
+            if (op == PUT && expiresAt > now)
+                entries.put(key, new RefreshTokenEntry(high, low, expiresAt));
+            else
+                entries.remove(key);
+        }
+        return entries;
+    }
+
+    public synchronized void appendPut(String email, RefreshTokenEntry entry) {
+        append(PUT, email, entry.high(), entry.low(), entry.expiresAt());
+    }
+
+    public synchronized void appendRemove(String email) {
+        append(REMOVE, email, 0, 0, 0);
+    }
+
+    public synchronized int size() {
+        return buffer.position();
+    }
+
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Rewrites the log so it only holds its live, unexpired entries, replacing the old file atomically.
+     * The snapshot is taken from the log itself, so it always agrees with what has been appended. If the
+     * rewrite fails, the current log stays in place and in use.
+     */
+    public synchronized void compact() {
+        Map<String, RefreshTokenEntry> live = replay(System.currentTimeMillis());
+        int required = live.keySet().stream()
+                .mapToInt(email -> FIXED_RECORD_SIZE + email.getBytes(StandardCharsets.UTF_8).length)
+                .sum();
+        int compactedCapacity = capacity;
+        while (required > compactedCapacity / 2)
+            compactedCapacity = Math.multiplyExact(compactedCapacity, 2);
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        FileChannel compactedChannel = null;
+        try {
+            Files.deleteIfExists(compacted);
+            compactedChannel = FileChannel.open(compacted, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer compactedBuffer = compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0, compactedCapacity);
+            live.forEach((email, entry) -> write(compactedBuffer, PUT, email, entry.high(), entry.low(), entry.expiresAt()));
+            compactedBuffer.force();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // The new mapping already belongs to the file now at path; the old one goes with the garbage collector
+            closeQuietly(channel);
+            channel = compactedChannel;
+            buffer = compactedBuffer;
+            capacity = compactedCapacity;
+            log.debug("Refresh token journal compacted to {} entries", live.size());
+        } catch (IOException e) {
+            closeQuietly(compactedChannel);
+            throw new IllegalStateException("Unable to compact refresh token journal " + path, e);
+        }
+    }
+
+    public synchronized void flush() {
+        if (buffer != null)
+            buffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (buffer == null)
+            return;
+        buffer.force();
+        buffer = null;
+        closeQuietly(channel);
+    }
+
+    private void append(byte op, String email, long high, long low, long expiresAt) {
+        int recordSize = FIXED_RECORD_SIZE + email.getBytes(StandardCharsets.UTF_8).length;
+        if (buffer.remaining() < recordSize)
+            compact();
+        write(buffer, op, email, high, low, expiresAt);
+    }
+
+    private static void write(MappedByteBuffer buffer, byte op, String email, long high, long low, long expiresAt) {
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.position(start + 1);
+        buffer.putShort((short) emailBytes.length);
+        buffer.put(emailBytes);
+        buffer.putLong(high);
+        buffer.putLong(low);
+        buffer.putLong(expiresAt);
+        buffer.put(start, op);
+    }
+
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        capacity = (int) Math.max(capacity, channel.size());
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void closeQuietly(FileChannel fileChannel) {
+        if (fileChannel == null)
+            return;
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close refresh token journal {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.max.rest.store;
+
+public interface RefreshTokenStore {
+    void save(String email, String refreshToken);
+
+    boolean matches(String email, String refreshToken);
+
+    boolean rotate(String email, String currentToken, String newToken);
+
+    void remove(String email);
+}
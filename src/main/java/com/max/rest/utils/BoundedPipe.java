@@ -0,0 +1,80 @@
+package com.max.rest.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-producer, single-consumer hand-off between two pipeline stages. {@link #put} blocks while
+ * the pipe is full, which is what keeps a fast producer from outrunning a slow consumer. Once
+ * {@link #abort aborted}, both ends fail with a {@link CancellationException} instead of blocking.
+ */
+public class BoundedPipe<T> {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<Object> queue;
+    private volatile boolean aborted;
+
+    public BoundedPipe(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void put(T item) throws InterruptedException {
+        offer(item);
+    }
+
+    /**
+     * Tells the consumer no more items will follow.
+     */
+    public void close() throws InterruptedException {
+        offer(END);
+    }
+
+    /**
+     * Returns the next item, or {@code null} once the producer has closed the pipe.
+     */
+    @SuppressWarnings("unchecked")
+    public T take() throws InterruptedException {
+        while (true) {
+            checkAborted();
+            Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item == END)
+                return null;
+            if (item != null)
+                return (T) item;
+        }
+    }
+
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Removes and returns the items nobody took, for cleanup after an abort.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> drain() {
+        List<Object> items = new ArrayList<>();
+        queue.drainTo(items);
+        items.remove(END);
+        return (List<T>) items;
+    }
+
+    private void offer(Object item) throws InterruptedException {
+        while (true) {
+            checkAborted();
+            if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                return;
+        }
+    }
+
+    private void checkAborted() {
+        if (aborted)
+            throw new CancellationException("Pipe aborted");
+    }
+}
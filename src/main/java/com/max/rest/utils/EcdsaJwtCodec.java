@@ -0,0 +1,139 @@
+package com.max.rest.utils;
+
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
+import com.max.rest.security.JwtKeyRing;
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.SignatureException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.max.rest.utils.JwtSegments.*;
+
+/**
+ * Mints and verifies ES256 JWTs against a {@link JwtKeyRing}.
+ * <p>
+ * Tokens are minted with the ring's active key and a {@code kid} header. The header segment of
+ * every key in the ring is precomputed, so a token this application issued is matched to its key
+ * with a single map lookup and verified in one pass; other headers go through a jjwt parser that
+ * resolves the key by {@code kid}.
+ */
+public class EcdsaJwtCodec implements JwtCodec {
+
+    // Raw R || S signatures, as JWS requires
+    private static final String JCA_ALGORITHM = "SHA256withECDSAinP1363Format";
+    private static final int SIGNATURE_LENGTH = 64;
+
+    private final JwtKeyRing.SigningKey activeKey;
+    private final String activeHeaderSegment;
+    private final Map<String, JwtKeyRing.SigningKey> keysByHeaderSegment = new HashMap<>();
+    private final JwtParser parser;
+
+    public EcdsaJwtCodec(JwtKeyRing keyRing) {
+        if (!keyRing.isEnabled())
+            throw new IllegalArgumentException("Key ring has no signing key");
+
+        for (JwtKeyRing.SigningKey key : keyRing.getKeys())
+            keysByHeaderSegment.put(headerSegment(key.kid()), key);
+        this.activeKey = keyRing.getActiveKey();
+        this.activeHeaderSegment = headerSegment(activeKey.kid());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        JwtKeyRing.SigningKey key = header.getKeyId() != null ? keyRing.getKey(header.getKeyId()) : null;
+                        if (key == null)
+                            throw new UnsupportedJwtException("Unknown signing key id " + header.getKeyId());
+                        return key.publicKey();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Whether {@code token} carries the header of one of this ring's keys, i.e. was issued here.
+     */
+    public boolean issued(String token) {
+        int firstDot = token.indexOf('.');
+        return firstDot > 0 && keysByHeaderSegment.containsKey(token.substring(0, firstDot));
+    }
+
+    @Override
+    public String mint(String subject, long expirationSeconds) {
+        String signingInput = activeHeaderSegment + '.' + payload(subject, expirationSeconds);
+        try {
+            Signature signer = Signature.getInstance(JCA_ALGORITHM);
+            signer.initSign(activeKey.privateKey());
+            signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + '.' + BASE64_URL_ENCODER.encodeToString(signer.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign token", e);
+        }
+    }
+
+    @Override
+    public TokenVerification verify(String token) {
+        if (token == null || token.isEmpty())
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0)
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        JwtKeyRing.SigningKey key = keysByHeaderSegment.get(token.substring(0, firstDot));
+        if (key == null)
+            return verifyWithParser(token);
+
+        if (!isBase64Url(token, firstDot + 1, secondDot) || !isBase64Url(token, secondDot + 1, token.length())
+                || (secondDot - firstDot - 1) % 4 == 1)
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        try {
+            byte[] signature = BASE64_URL_DECODER.decode(token.substring(secondDot + 1));
+            if (signature.length != SIGNATURE_LENGTH)
+                return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+
+            Signature verifier = Signature.getInstance(JCA_ALGORITHM);
+            verifier.initVerify(key.publicKey());
+            verifier.update(bytes, 0, secondDot);
+            if (!verifier.verify(signature))
+                return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+
+            ByteBuffer payload = BASE64_URL_DECODER.decode(ByteBuffer.wrap(bytes, firstDot + 1, secondDot - firstDot - 1));
+            return readClaims(payload, () -> verifyWithParser(token));
+        } catch (IllegalArgumentException e) {
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+        } catch (GeneralSecurityException e) {
+            return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+        }
+    }
+
+    private TokenVerification verifyWithParser(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Instant expiration = claims.getExpiration() != null ? claims.getExpiration().toInstant() : null;
+            return TokenVerification.valid(claims.getSubject(), expiration);
+        } catch (ExpiredJwtException e) {
+            return TokenVerification.rejected(TokenStatus.EXPIRED);
+        } catch (UnsupportedJwtException e) {
+            return TokenVerification.rejected(TokenStatus.UNSUPPORTED);
+        } catch (SignatureException e) {
+            return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+        }
+    }
+
+    private static String headerSegment(String kid) {
+        return encode("{\"alg\":\"" + JwtKeyRing.ES256 + "\",\"kid\":\"" + kid + "\"}");
+    }
+}
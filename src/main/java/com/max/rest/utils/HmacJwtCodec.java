@@ -0,0 +1,113 @@
+package com.max.rest.utils;
+
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+
+import static com.max.rest.utils.JwtSegments.*;
+
+/**
+ * Mints and verifies compact HMAC-signed JWTs for a single key.
+ * <p>
+ * Minting writes the constant header segment and a {@code sub}/{@code exp} payload directly,
+ * producing the same bytes jjwt's builder would for those claims. Tokens carrying the header this application issues are checked in one pass with a
+ * thread-confined {@link Mac} and a streaming read of {@code sub}/{@code exp}; the common
+ * failures are reported as {@link TokenStatus} values without throwing. Anything else
+ * (other headers, unusual claims) falls back to a prebuilt jjwt parser.
+ */
+public class HmacJwtCodec implements JwtCodec {
+
+    private final String headerSegment;
+    private final JwtParser parser;
+    private final ThreadLocal<Mac> mac;
+
+    public HmacJwtCodec(SecretKey key) {
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forSigningKey(key);
+        this.headerSegment = encode("{\"alg\":\"" + algorithm.getValue() + "\"}");
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(algorithm.getJcaName());
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize " + algorithm.getJcaName(), e);
+            }
+        });
+    }
+
+    @Override
+    public String mint(String subject, long expirationSeconds) {
+        String signingInput = headerSegment + '.' + payload(subject, expirationSeconds);
+        byte[] signature = mac.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + '.' + BASE64_URL_ENCODER.encodeToString(signature);
+    }
+
+    @Override
+    public TokenVerification verify(String token) {
+        if (token == null || token.isEmpty())
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0)
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        if (firstDot != headerSegment.length() || !token.startsWith(headerSegment))
+            return verifyWithParser(token);
+
+        if (!isBase64Url(token, firstDot + 1, secondDot) || !isBase64Url(token, secondDot + 1, token.length())
+                || (secondDot - firstDot - 1) % 4 == 1)
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        Mac instance = mac.get();
+        instance.update(bytes, 0, secondDot);
+        byte[] signature = BASE64_URL_ENCODER.encode(instance.doFinal());
+        if (!constantTimeEquals(signature, bytes, secondDot + 1))
+            return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+
+        ByteBuffer payload;
+        try {
+            payload = BASE64_URL_DECODER.decode(ByteBuffer.wrap(bytes, firstDot + 1, secondDot - firstDot - 1));
+        } catch (IllegalArgumentException e) {
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+        }
+        return readClaims(payload, () -> verifyWithParser(token));
+    }
+
+    private TokenVerification verifyWithParser(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Instant expiration = claims.getExpiration() != null ? claims.getExpiration().toInstant() : null;
+            return TokenVerification.valid(claims.getSubject(), expiration);
+        } catch (ExpiredJwtException e) {
+            return TokenVerification.rejected(TokenStatus.EXPIRED);
+        } catch (UnsupportedJwtException e) {
+            return TokenVerification.rejected(TokenStatus.UNSUPPORTED);
+        } catch (SignatureException e) {
+            return TokenVerification.rejected(TokenStatus.INVALID_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+        }
+    }
+
+    private static boolean constantTimeEquals(byte[] expected, byte[] token, int offset) {
+        if (token.length - offset != expected.length)
+            return false;
+
+        int result = 0;
+        for (int i = 0; i < expected.length; i++) {
+            result |= expected[i] ^ token[offset + i];
+        }
+        return result == 0;
+    }
+}
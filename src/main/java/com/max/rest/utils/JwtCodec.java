@@ -0,0 +1,13 @@
+package com.max.rest.utils;
+
+import com.max.rest.dto.TokenVerification;
+
+/**
+ * Mints and verifies compact JWTs carrying a {@code sub} and an {@code exp} claim.
+ */
+public interface JwtCodec {
+
+    String mint(String subject, long expirationSeconds);
+
+    TokenVerification verify(String token);
+}
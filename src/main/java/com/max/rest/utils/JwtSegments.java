@@ -0,0 +1,124 @@
+package com.max.rest.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
+import io.jsonwebtoken.Claims;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Supplier;
+
+/**
+ * Encoding helpers shared by the JWT codecs: payload writing, segment checks and the streaming
+ * claims read.
+ */
+final class JwtSegments {
+
+    static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+    static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private JwtSegments() {
+    }
+
+    static String encode(String json) {
+        return BASE64_URL_ENCODER.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String payload(String subject, long expirationSeconds) {
+        boolean hasSubject = subject != null && !subject.isBlank();
+        StringBuilder payload = new StringBuilder(hasSubject ? subject.length() + 32 : 24).append('{');
+        if (hasSubject) {
+            payload.append("\"sub\":\"");
+            appendEscaped(payload, subject);
+            payload.append("\",");
+        }
+        payload.append("\"exp\":").append(expirationSeconds).append('}');
+        return encode(payload.toString());
+    }
+
+    /**
+     * Reads {@code sub} and {@code exp} from a decoded payload and checks expiry. Anything the fast
+     * path does not handle exactly (missing {@code exp}, {@code nbf}, odd claim types) goes to
+     * {@code fallback}.
+     */
+    static TokenVerification readClaims(ByteBuffer payload, Supplier<TokenVerification> fallback) {
+        String subject = null;
+        long expiration = Long.MIN_VALUE;
+        try (JsonParser json = JSON_FACTORY.createParser(payload.array(),
+                payload.arrayOffset() + payload.position(), payload.remaining())) {
+            if (json.nextToken() != JsonToken.START_OBJECT)
+                return TokenVerification.rejected(TokenStatus.MALFORMED);
+
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String name = json.getCurrentName();
+                JsonToken value = json.nextToken();
+                if (Claims.SUBJECT.equals(name) && value == JsonToken.VALUE_STRING) {
+                    subject = json.getText();
+                } else if (Claims.EXPIRATION.equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+                    expiration = json.getLongValue();
+                } else if (Claims.SUBJECT.equals(name) || Claims.EXPIRATION.equals(name)
+                        || Claims.NOT_BEFORE.equals(name)) {
+                    // Unusual representation - let jjwt apply its full rules
+                    return fallback.get();
+                } else {
+                    json.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return TokenVerification.rejected(TokenStatus.MALFORMED);
+        }
+
+        if (expiration == Long.MIN_VALUE)
+            return fallback.get();
+
+        long expirationMillis = expiration * 1000;
+        if (System.currentTimeMillis() > expirationMillis)
+            return TokenVerification.rejected(TokenStatus.EXPIRED);
+
+        return TokenVerification.valid(subject, Instant.ofEpochMilli(expirationMillis));
+    }
+
+    static boolean isBase64Url(String token, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = token.charAt(i);
+            boolean valid = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!valid)
+                return false;
+        }
+        return true;
+    }
+
+    // Mirrors Jackson's default string escaping so minted payloads match jjwt byte for byte
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\b' -> out.append("\\b");
+                case '\t' -> out.append("\\t");
+                case '\f' -> out.append("\\f");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> {
+                    if (c < 0x20 || Character.isSurrogate(c)) {
+                        out.append("\\u").append(HEX_DIGITS[c >> 12]).append(HEX_DIGITS[(c >> 8) & 0xF])
+                                .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
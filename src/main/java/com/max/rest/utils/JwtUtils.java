@@ -1,16 +1,16 @@
 package com.max.rest.utils;
 
 import com.max.rest.dto.JwtAuthentication;
-import io.jsonwebtoken.Claims;
+import com.max.rest.dto.TokenVerification;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class JwtUtils {
 
-    public static JwtAuthentication generate(Claims claims) {
+    public static JwtAuthentication generate(TokenVerification verification) {
         final JwtAuthentication jwtInfoToken = new JwtAuthentication();
-        jwtInfoToken.setEmail(claims.getSubject());
+        jwtInfoToken.setEmail(verification.getSubject());
         return jwtInfoToken;
     }
 }
@@ -0,0 +1,70 @@
+package com.max.rest.utils;
+
+import com.max.rest.exception.ValidationException;
+import org.springframework.validation.ObjectError;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Collections;
+
+/**
+ * Position after the last row of a keyset page, encoded as an opaque base64url token.
+ * <p>
+ * Layout: {@code [version:1][order:1][id:8]} plus {@code [birthDate epoch day:8]} for the
+ * birth-date order. A token only continues the order it was issued for.
+ */
+public record UserCursor(Order order, long id, LocalDate birthDate) {
+
+    public enum Order {ID, BIRTH_DATE_ID}
+
+    private static final byte VERSION = 1;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static UserCursor afterId(long id) {
+        return new UserCursor(Order.ID, id, null);
+    }
+
+    public static UserCursor afterBirthDate(LocalDate birthDate, long id) {
+        return new UserCursor(Order.BIRTH_DATE_ID, id, birthDate);
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(order == Order.ID ? 10 : 18)
+                .put(VERSION)
+                .put((byte) order.ordinal())
+                .putLong(id);
+        if (order == Order.BIRTH_DATE_ID)
+            buffer.putLong(birthDate.toEpochDay());
+        return ENCODER.encodeToString(buffer.array());
+    }
+
+    /**
+     * Returns {@code null} for a missing token, i.e. the first page.
+     */
+    public static UserCursor decode(String token, Order expected) {
+        if (token == null || token.isBlank())
+            return null;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(DECODER.decode(token));
+            if (buffer.get() != VERSION || buffer.get() != expected.ordinal())
+                throw invalid();
+            long id = buffer.getLong();
+            LocalDate birthDate = expected == Order.BIRTH_DATE_ID ? LocalDate.ofEpochDay(buffer.getLong()) : null;
+            if (buffer.hasRemaining())
+                throw invalid();
+            return new UserCursor(expected, id, birthDate);
+        } catch (IllegalArgumentException | BufferUnderflowException | DateTimeException e) {
+            throw invalid();
+        }
+    }
+
+    private static ValidationException invalid() {
+        return new ValidationException(Collections.singletonList(new ObjectError("Validation failed",
+                "Invalid or expired cursor")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.max.rest.utils;
+
+import com.max.rest.exception.PreconditionFailedException;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Strong entity tags for user resources, derived from the row version.
+ */
+public final class UserETag {
+
+    private UserETag() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the versions an {@code If-Match} header accepts, or {@code null} when there is no
+     * header or it is {@code *}. The header is a comma-separated list of entity tags; weak tags and
+     * tags that are not ours never match, and a header with nothing that can match is rejected.
+     */
+    public static Set<Long> acceptedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+
+        Set<Long> versions = new HashSet<>();
+        int position = 0;
+        while (position < ifMatch.length()) {
+            char c = ifMatch.charAt(position);
+            if (c == ',' || c == ' ' || c == '\t') {
+                position++;
+                continue;
+            }
+
+            boolean weak = ifMatch.startsWith("W/", position);
+            int open = weak ? position + 2 : position;
+            int close = open < ifMatch.length() && ifMatch.charAt(open) == '"' ? ifMatch.indexOf('"', open + 1) : -1;
+            if (close < 0)
+                break;
+            if (!weak)
+                parseVersion(ifMatch.substring(open + 1, close), versions);
+            position = close + 1;
+        }
+
+        if (versions.isEmpty())
+            throw new PreconditionFailedException("If-Match does not match the current version of this user");
+        return versions;
+    }
+
+    private static void parseVersion(String opaqueTag, Set<Long> versions) {
+        try {
+            versions.add(Long.parseLong(opaqueTag));
+        } catch (NumberFormatException ignored) {
+            // Not a tag this API issued, so it can never match
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.max.rest.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.max.rest.dto.UserImportFormat;
+import com.max.rest.dto.UserRequest;
+import com.max.rest.exception.ValidationException;
+import org.springframework.validation.ObjectError;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads import rows one at a time from a CSV or NDJSON stream, holding at most one record in memory.
+ * <p>
+ * CSV input starts with a header naming {@link UserRequest} fields in any order; fields may be
+ * quoted, with {@code ""} for a quote and line breaks allowed inside quotes. NDJSON input holds
+ * one {@link UserRequest} object per line. Blank lines are skipped in both. A row that cannot be
+ * read is returned with its errors rather than ending the import; records longer than
+ * {@value #MAX_RECORD_LENGTH} characters are skipped the same way.
+ */
+public abstract class UserImportReader {
+
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushedBack = EOF;
+    private long line = 1;
+
+    /**
+     * A record read from the input: either a request or the reasons it could not be read.
+     */
+    public record Row(long line, UserRequest request, List<String> errors) {
+
+        static Row of(long line, UserRequest request) {
+            return new Row(line, request, List.of());
+        }
+
+        static Row rejected(long line, String error) {
+            return new Row(line, null, List.of(error));
+        }
+    }
+
+    protected UserImportReader(InputStream input) {
+        this.reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens {@code input}; for CSV this reads and checks the header, so a malformed one fails here
+     * with a {@link ValidationException} before any row is processed.
+     */
+    public static UserImportReader open(InputStream input, UserImportFormat format, ObjectMapper objectMapper) {
+        return switch (format) {
+            case CSV -> new Csv(input);
+            case NDJSON -> new Ndjson(input, objectMapper);
+        };
+    }
+
+    /**
+     * Returns the next row, or {@code null} at the end of the input.
+     */
+    public abstract Row next();
+
+    protected long line() {
+        return line;
+    }
+
+    protected int read() {
+        if (pushedBack != EOF) {
+            int c = pushedBack;
+            pushedBack = EOF;
+            return c;
+        }
+        if (position == limit) {
+            try {
+                limit = reader.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n')
+            line++;
+        return c;
+    }
+
+    protected void unread(int c) {
+        pushedBack = c;
+    }
+
+    private static ValidationException invalidInput(String message) {
+        return new ValidationException(Collections.singletonList(new ObjectError("Import failed", message)));
+    }
+
+    private static final class Ndjson extends UserImportReader {
+
+        private final ObjectMapper objectMapper;
+        private final StringBuilder record = new StringBuilder();
+
+        private Ndjson(InputStream input, ObjectMapper objectMapper) {
+            super(input);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Row next() {
+            while (true) {
+                long start = line();
+                record.setLength(0);
+                boolean tooLong = false;
+                int c;
+                while ((c = read()) != EOF && c != '\n') {
+                    if (record.length() < MAX_RECORD_LENGTH)
+                        record.append((char) c);
+                    else
+                        tooLong = true;
+                }
+                if (tooLong)
+                    return Row.rejected(start, "Line is longer than " + MAX_RECORD_LENGTH + " characters");
+                if (!record.toString().isBlank())
+                    return parse(start, record.toString());
+                if (c == EOF)
+                    return null;
+            }
+        }
+
+        private Row parse(long line, String json) {
+            try {
+                return Row.of(line, objectMapper.readValue(json, UserRequest.class));
+            } catch (JsonProcessingException e) {
+                return Row.rejected(line, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static final class Csv extends UserImportReader {
+
+        private static final Map<String, BiConsumer<UserRequest, String>> COLUMNS = Map.of(
+                "email", UserRequest::setEmail,
+                "password", UserRequest::setPassword,
+                "firstName", UserRequest::setFirstName,
+                "lastName", UserRequest::setLastName,
+                "birthDate", (request, value) -> request.setBirthDate(LocalDate.parse(value)),
+                "address", UserRequest::setAddress,
+                "phoneNumber", UserRequest::setPhoneNumber);
+
+        private static final Set<String> REQUIRED = Set.of("email", "password", "firstName", "lastName", "birthDate");
+
+        private final List<String> names = new ArrayList<>();
+        private final List<BiConsumer<UserRequest, String>> setters = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int recordLength;
+
+        private Csv(InputStream input) {
+            super(input);
+            if (!readRecord() || recordLength > MAX_RECORD_LENGTH)
+                throw invalidInput("CSV input must start with a header row");
+
+            for (String name : fields) {
+                String key = COLUMNS.keySet().stream()
+                        .filter(column -> column.equalsIgnoreCase(name.trim()))
+                        .findFirst()
+                        .orElse(null);
+                if (key == null)
+                    throw invalidInput("Unknown CSV column '" + name + "'");
+                if (names.contains(key))
+                    throw invalidInput("Duplicate CSV column '" + name + "'");
+                names.add(key);
+                setters.add(COLUMNS.get(key));
+            }
+            for (String required : REQUIRED) {
+                if (!names.contains(required))
+                    throw invalidInput("CSV header is missing the '" + required + "' column");
+            }
+        }
+
+        @Override
+        public Row next() {
+            long start;
+            do {
+                start = line();
+                if (!readRecord())
+                    return null;
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            if (recordLength > MAX_RECORD_LENGTH)
+                return Row.rejected(start, "Row is longer than " + MAX_RECORD_LENGTH + " characters");
+            if (fields.size() != setters.size())
+                return Row.rejected(start, "Expected " + setters.size() + " fields but found " + fields.size());
+
+            UserRequest request = new UserRequest();
+            for (int i = 0; i < fields.size(); i++) {
+                String value = fields.get(i);
+                if (value.isEmpty())
+                    continue;
+                try {
+                    setters.get(i).accept(request, value);
+                } catch (DateTimeParseException e) {
+                    return Row.rejected(start, names.get(i) + ": must be a date in yyyy-MM-dd format");
+                }
+            }
+            return Row.of(start, request);
+        }
+
+        // Reads one record into fields; false at the end of the input. Characters past the length limit are dropped.
+        private boolean readRecord() {
+            fields.clear();
+            field.setLength(0);
+            recordLength = 0;
+            int c = read();
+            if (c == EOF)
+                return false;
+
+            boolean quoted = false;
+            while (c != EOF) {
+                recordLength++;
+                if (quoted) {
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"')
+                            append('"');
+                        else {
+                            quoted = false;
+                            unread(next);
+                        }
+                    } else
+                        append((char) c);
+                } else if (c == '"' && field.length() == 0)
+                    quoted = true;
+                else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n')
+                    break;
+                else if (c != '\r')
+                    append((char) c);
+                c = read();
+            }
+            fields.add(field.toString());
+            return true;
+        }
+
+        private void append(char c) {
+            if (recordLength <= MAX_RECORD_LENGTH)
+                field.append(c);
+        }
+    }
+}
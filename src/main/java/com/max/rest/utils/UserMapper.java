@@ -15,9 +15,15 @@ public abstract class UserMapper {
     @Autowired
     protected PasswordEncoder passwordEncoder;
 
+    @Mapping(target = "version", ignore = true)
     @Mapping(source = "password", target = "password", qualifiedByName = "encodePassword")
     public abstract UserEntity userRequestToUserEntity(UserRequest userRequest);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(source = "encodedPassword", target = "password")
+    public abstract UserEntity userRequestToUserEntity(UserRequest userRequest, String encodedPassword);
+
     public abstract User userEntityToUser(UserEntity userEntity);
 
     @Named("encodePassword")
@@ -0,0 +1,43 @@
+package com.max.rest.utils;
+
+import com.max.rest.dto.UserRequest;
+import com.max.rest.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the checks of {@code POST /api/users} to a single item of a bulk request and reports
+ * them as messages instead of failing the whole request.
+ */
+@Component
+public class UserRequestValidator {
+
+    private final Validator validator;
+
+    private final UserService userService;
+
+    private final int minAge;
+
+    public UserRequestValidator(Validator validator, UserService userService, @Value("${app.minimum-age}") int minAge) {
+        this.validator = validator;
+        this.userService = userService;
+        this.minAge = minAge;
+    }
+
+    public List<String> validate(UserRequest request) {
+        if (request == null)
+            return List.of("User must not be null");
+
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<UserRequest> violation : validator.validate(request))
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        if (errors.isEmpty() && !userService.isValidBirthDate(request.getBirthDate(), minAge))
+            errors.add("Validation failed. Minimum age is " + minAge);
+        return errors;
+    }
+}
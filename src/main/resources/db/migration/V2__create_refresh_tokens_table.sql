@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+                       email VARCHAR(255) PRIMARY KEY,
+                       token_hash BINARY(32) NOT NULL,
+                       expires_at BIGINT NOT NULL
+);
+
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS user_id_sequence (
+                       next_val BIGINT NOT NULL
+);
+
+INSERT INTO user_id_sequence (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM users;
@@ -0,0 +1,35 @@
+package com.max.rest.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicBloomFilterTest {
+
+    @Test
+    void testMightContain_NoFalseNegativesAndBoundedFalsePositives() {
+        // Arrange
+        AtomicBloomFilter filter = new AtomicBloomFilter(10_000, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        long[][] inserted = new long[10_000][2];
+        for (long[] hashes : inserted) {
+            hashes[0] = random.nextLong();
+            hashes[1] = random.nextLong();
+            filter.put(hashes[0], hashes[1]);
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong()))
+                falsePositives++;
+        }
+
+        // Assert
+        for (long[] hashes : inserted)
+            assertTrue(filter.mightContain(hashes[0], hashes[1]));
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,123 @@
+package com.max.rest.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against an embedded H2 database in MySQL mode, migrated with the application's Flyway scripts.
+ */
+public class BirthDateIndexTest {
+
+    private static final LocalDate BASE = LocalDate.of(1990, 1, 1);
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BirthDateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        index = new BirthDateIndex(true, 100, jdbcTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRebuildAndPage() {
+        // Arrange
+        insertUsers(5000);
+
+        // Act
+        index.rebuild();
+        BirthDateIndex.RangePage page = index.page(BASE.plusDays(10), BASE.plusDays(19), 5, 3);
+
+        // Assert
+        assertTrue(index.isReady());
+        assertEquals(5000, index.size());
+        assertEquals(expectedIds(10, 19), index.count(BASE.plusDays(10), BASE.plusDays(19)));
+        assertEquals(index.count(BASE.plusDays(10), BASE.plusDays(19)), page.total());
+        assertArrayEquals(expectedIdList(10, 19).subList(5, 8).stream().mapToLong(Long::longValue).toArray(), page.ids());
+        assertTrue(index.memoryBytes() > 5000L * Long.BYTES);
+    }
+
+    @Test
+    void testPutMovesAndRemoveDrops() {
+        // Arrange
+        insertUsers(3000);
+        index.rebuild();
+        long total = index.count(BASE, BASE.plusDays(99));
+
+        // Act
+        index.put(1, BASE.plusYears(5));
+        index.remove(2);
+        for (long id = 10_000; id < 12_000; id++)
+            index.put(id, BASE.plusDays(50));
+
+        // Assert
+        assertEquals(total - 2 + 2000, index.count(BASE, BASE.plusDays(99)));
+        assertArrayEquals(new long[]{1}, index.page(BASE.plusYears(5), BASE.plusYears(5), 0, 10).ids());
+        assertEquals(expectedIds(50, 50) + 2000, index.count(BASE.plusDays(50), BASE.plusDays(50)));
+        assertEquals(0, index.count(BASE.plusDays(20), BASE.plusDays(10)));
+    }
+
+    @Test
+    void testChangesDuringBuildWinOverScan() {
+        // Arrange
+        insertUsers(100);
+        index.remove(1);
+        index.put(2, BASE.plusYears(10));
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertEquals(99, index.size());
+        assertArrayEquals(new long[]{2}, index.page(BASE.plusYears(10), BASE.plusYears(10), 0, 10).ids());
+    }
+
+    @Test
+    void testDisabledIndexIsNeverReady() {
+        // Arrange
+        BirthDateIndex disabled = new BirthDateIndex(false, 100, jdbcTemplate, new SimpleMeterRegistry());
+
+        // Act
+        disabled.rebuild();
+        disabled.put(1, BASE);
+
+        // Assert
+        assertFalse(disabled.isReady());
+        assertEquals(0, disabled.size());
+    }
+
+    // User n (id n) is born BASE + (n * 37 % 100) days
+    private void insertUsers(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int n = 1; n <= count; n++) {
+            rows.add(new Object[]{n, "user" + n + "@example.com", Date.valueOf(BASE.plusDays(n * 37L % 100))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, password, first_name, last_name, birth_date) "
+                + "VALUES (?, ?, 'hash', 'First', 'Last', ?)", rows);
+    }
+
+    private long expectedIds(int fromDay, int toDay) {
+        return expectedIdList(fromDay, toDay).size();
+    }
+
+    private List<Long> expectedIdList(int fromDay, int toDay) {
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE birth_date BETWEEN ? AND ? ORDER BY birth_date, id",
+                Long.class, Date.valueOf(BASE.plusDays(fromDay)), Date.valueOf(BASE.plusDays(toDay)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.max.rest.cache;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against an embedded H2 database in MySQL mode, migrated with the application's Flyway scripts.
+ */
+public class RegisteredEmailFilterTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    void testLoadedEmailsMightBeRegistered() {
+        // Arrange
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            rows.add(new Object[]{"User" + i + "@Example.com"});
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, password, first_name, last_name, birth_date) "
+                + "VALUES (?, 'hash', 'First', 'Last', '1990-01-01')", rows);
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(true, 100, 0.01, 50, jdbcTemplate);
+
+        // Act
+        boolean beforeLoad = filter.mightBeRegistered("unknown@example.com");
+        filter.load();
+
+        // Assert
+        assertTrue(beforeLoad);
+        for (int i = 0; i < 500; i++)
+            assertTrue(filter.mightBeRegistered("user" + i + "@example.com"));
+        assertFalse(filter.mightBeRegistered("unknown@example.com"));
+    }
+
+    @Test
+    void testFalsePositiveRateStaysBoundedWhileGrowing() {
+        // Arrange
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(true, 1000, 0.01, 50, jdbcTemplate);
+        filter.load();
+        long initialBytes = filter.memoryBytes();
+
+        // Act
+        for (int i = 0; i < 20_000; i++)
+            filter.add("user" + i + "@example.com");
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (filter.mightBeRegistered("other" + i + "@example.com"))
+                falsePositives++;
+        }
+
+        // Assert
+        assertTrue(filter.memoryBytes() > initialBytes);
+        assertTrue(falsePositives < 20_000 * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testReservationIsExclusiveUntilReleased() {
+        // Arrange
+        RegisteredEmailFilter filter = new RegisteredEmailFilter(true, 100, 0.01, 50, jdbcTemplate);
+
+        // Act
+        boolean first = filter.reserve("test@example.com");
+        boolean second = filter.reserve("TEST@example.com");
+        filter.release("test@example.com");
+        boolean afterRelease = filter.reserve("test@example.com");
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(afterRelease);
+    }
+}
@@ -0,0 +1,175 @@
+package com.max.rest.configuration;
+
+import com.max.rest.dto.User;
+import com.max.rest.dto.UserUpdateRequest;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.repository.UserRepository;
+import com.max.rest.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "app.datasource.replica.url=" + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.users.cache.enabled=true",
+        "app.users.versions.enabled=true"
+})
+@ActiveProfiles("test")
+public class ReadWriteRoutingDataSourceTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    // Nothing listens on port 1, so every connection attempt is refused
+    private static final String UNREACHABLE_URL = "jdbc:h2:tcp://127.0.0.1:1/replica_db";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    private JdbcTemplate replica;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        DataSource replicaDataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(replicaDataSource).locations("classpath:/db/migration").load().migrate();
+        replica = new JdbcTemplate(replicaDataSource);
+
+        userId = userRepository.save(new UserEntity(null, "routing@example.com", "hash", "Primary", "Doe",
+                LocalDate.of(1990, 1, 1), null, null)).getId();
+        replica.update("INSERT INTO users (id, email, password, first_name, last_name, birth_date) VALUES (?, ?, ?, ?, ?, ?)",
+                userId, "routing@example.com", "hash", "Replica", "Doe", LocalDate.of(1990, 1, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(userId);
+        replica.update("DELETE FROM users");
+    }
+
+    @Test
+    void testReadsGoToReplicaAndWritesToPrimary() {
+        // Arrange
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setLastName("Smith");
+
+        // Act
+        List<User> read = userService.getAllUsers(PageRequest.of(0, 10)).getContent();
+        User updated = userService.partialUpdateUser(userId, request, null);
+
+        // Assert
+        assertEquals(List.of("Replica"), read.stream().map(User::getFirstName).toList());
+        assertEquals("Primary", updated.getFirstName());
+        assertEquals("Smith", primary.queryForObject("SELECT last_name FROM users WHERE id = ?", String.class, userId));
+        assertEquals("Doe", replica.queryForObject("SELECT last_name FROM users WHERE id = ?", String.class, userId));
+    }
+
+    @Test
+    void testReadAfterWriteCachesThePrimaryRow() {
+        // Arrange
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setLastName("Smith");
+        User updated = userService.partialUpdateUser(userId, request, null);
+
+        // Act
+        User read = userService.getUserById(userId);
+        User cached = userService.getUserById(userId);
+
+        // Assert
+        assertEquals("Doe", replica.queryForObject("SELECT last_name FROM users WHERE id = ?", String.class, userId));
+        assertEquals("Smith", read.getLastName());
+        assertEquals("Smith", cached.getLastName());
+        assertEquals(updated.getVersion(), cached.getVersion());
+        assertEquals(updated.getVersion(), userService.getKnownVersion(userId));
+    }
+
+    @Test
+    void testFallsBackToPrimaryWhenReplicaIsUnavailable() throws SQLException {
+        // Arrange
+        DataSource available = mock(DataSource.class);
+        DataSource unavailable = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(available.getConnection()).thenReturn(connection);
+        when(unavailable.getConnection()).thenThrow(new SQLException("Connection is not available"));
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(available, unavailable);
+
+        // Act
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection routed;
+        try {
+            routed = routing.getConnection();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        // Assert
+        assertSame(connection, routed);
+    }
+
+    @Test
+    void testFallsBackToPrimaryWhenReplicaIsUnreachable() throws SQLException {
+        // Arrange
+        try (HikariDataSource unreachable = new DataSourceConfig().replicaDataSource(UNREACHABLE_URL, "sa", "", 2, 250)) {
+            ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primaryDataSource, unreachable);
+
+            // Act & Assert
+            assertRoutedToPrimary(routing);
+        }
+    }
+
+    // Hikari unwraps an SQLException from the first connection, but reports anything else as a PoolInitializationException
+    @Test
+    void testFallsBackToPrimaryWhenReplicaPoolFailsToInitialize() throws SQLException {
+        // Arrange
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new IllegalStateException("Replica driver failed"));
+        try (HikariDataSource unreachable = new HikariDataSource()) {
+            unreachable.setDataSource(broken);
+            unreachable.setConnectionTimeout(250);
+            ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primaryDataSource, unreachable);
+
+            // Act & Assert
+            assertRoutedToPrimary(routing);
+        }
+    }
+
+    private void assertRoutedToPrimary(DataSource routing) throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            assertTrue(connection.getMetaData().getURL().startsWith("jdbc:h2:mem:test_db"));
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+}
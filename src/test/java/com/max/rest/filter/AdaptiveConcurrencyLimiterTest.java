@@ -0,0 +1,59 @@
+package com.max.rest.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(true, 20, 5, 200, 0.2, 1.5, 100, meterRegistry);
+
+    @Test
+    void testTryAcquire_ShedsAboveLimit() {
+        // Arrange
+        for (int i = 0; i < 20; i++)
+            assertTrue(limiter.tryAcquire() >= 0);
+
+        // Act
+        long shed = limiter.tryAcquire();
+
+        // Assert
+        assertEquals(-1, shed);
+        assertEquals(20, meterRegistry.get("concurrency.in-flight").gauge().value());
+        assertEquals(1, meterRegistry.get("concurrency.shed").counter().count());
+    }
+
+    @Test
+    void testOnSample_GrowsWithStableLatencyAndShrinksWhenItRises() {
+        // Arrange
+        long baseline = TimeUnit.MILLISECONDS.toNanos(10);
+        for (int i = 0; i < 100; i++)
+            limiter.onSample(baseline, limiter.getLimit());
+        int grown = limiter.getLimit();
+
+        // Act
+        for (int i = 0; i < 30; i++)
+            limiter.onSample(baseline * 5, limiter.getLimit());
+
+        // Assert
+        assertTrue(grown > 20, "limit should grow, was " + grown);
+        assertTrue(limiter.getLimit() < grown, "limit should shrink, was " + limiter.getLimit());
+        assertEquals(limiter.getLimit(), meterRegistry.get("concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void testOnSample_DoesNotGrowWhenUnderused() {
+        // Act
+        for (int i = 0; i < 100; i++)
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(10), 1);
+
+        // Assert
+        assertEquals(20, limiter.getLimit());
+    }
+}
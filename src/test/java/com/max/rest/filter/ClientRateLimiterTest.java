@@ -0,0 +1,50 @@
+package com.max.rest.filter;
+
+import com.max.rest.filter.ClientRateLimiter.ClientKind;
+import com.max.rest.filter.ClientRateLimiter.Group;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientRateLimiterTest {
+
+    @Test
+    void testAcquire_AllowsBurstThenRejectsWithWait() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ClientRateLimiter limiter = new ClientRateLimiter(true, Duration.ofMinutes(5), 1000, meterRegistry)
+                .limit(Group.AUTH, ClientKind.IP, 1, 3);
+
+        // Act
+        long first = limiter.acquire(Group.AUTH, ClientKind.IP, "10.0.0.1");
+        limiter.acquire(Group.AUTH, ClientKind.IP, "10.0.0.1");
+        long third = limiter.acquire(Group.AUTH, ClientKind.IP, "10.0.0.1");
+        long rejected = limiter.acquire(Group.AUTH, ClientKind.IP, "10.0.0.1");
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(0, third);
+        assertTrue(rejected > 0 && rejected <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.acquire(Group.AUTH, ClientKind.IP, "10.0.0.2"));
+        assertEquals(0, limiter.acquire(Group.USERS, ClientKind.IP, "10.0.0.1"));
+        assertEquals(1, meterRegistry.get("rate.limit.rejected").tag("group", "auth").tag("client", "ip").counter().count());
+    }
+
+    @Test
+    void testAcquire_DisabledOrUnlimitedAlwaysGrants() {
+        // Arrange
+        ClientRateLimiter disabled = new ClientRateLimiter(false, Duration.ofMinutes(5), 1000, new SimpleMeterRegistry())
+                .limit(Group.USERS, ClientKind.SUBJECT, 1, 1);
+        ClientRateLimiter unlimited = new ClientRateLimiter(true, Duration.ofMinutes(5), 1000, new SimpleMeterRegistry());
+
+        // Act & Assert
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, disabled.acquire(Group.USERS, ClientKind.SUBJECT, "user@example.com"));
+            assertEquals(0, unlimited.acquire(Group.USERS, ClientKind.SUBJECT, "user@example.com"));
+        }
+    }
+}
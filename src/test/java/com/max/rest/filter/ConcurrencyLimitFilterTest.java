@@ -0,0 +1,42 @@
+package com.max.rest.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitFilterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(true, 20, 5, 200, 0.2, 1.5, 100, new SimpleMeterRegistry());
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter, 1);
+
+    @Test
+    void testStreamsBypassAdaptiveLimitAndShareTheirOwn() throws Exception {
+        // Arrange
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        AtomicInteger inFlightDuringStream = new AtomicInteger(-1);
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/export"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    inFlightDuringStream.set(limiter.getInFlight());
+                    filter.doFilter(new MockHttpServletRequest("POST", "/api/users/import"), second,
+                            (innerRequest, innerResponse) -> fail("Second stream should have been shed"));
+                });
+        MockHttpServletResponse afterwards = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/users/export"), afterwards, (request, response) -> {
+        });
+
+        // Assert
+        assertEquals(0, inFlightDuringStream.get());
+        assertEquals(503, second.getStatus());
+        assertEquals(200, afterwards.getStatus());
+        assertEquals(20, limiter.getLimit());
+    }
+}
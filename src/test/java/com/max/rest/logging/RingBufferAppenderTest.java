@@ -0,0 +1,113 @@
+package com.max.rest.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final BlockingListAppender target = new BlockingListAppender();
+    private final RingBufferAppender appender = new RingBufferAppender();
+
+    @AfterEach
+    void tearDown() {
+        target.release.countDown();
+        appender.stop();
+    }
+
+    @Test
+    void testAppend_DeliversWarningsInOrderThroughSmallBuffer() throws Exception {
+        // Arrange
+        start(64);
+        target.release.countDown();
+
+        // Act
+        for (int i = 0; i < 1000; i++)
+            appender.doAppend(event(Level.WARN, "message " + i));
+
+        // Assert
+        waitUntil(() -> target.events.size() == 1000);
+        for (int i = 0; i < 1000; i++)
+            assertEquals("message " + i, target.events.get(i).getFormattedMessage());
+        assertEquals(0, appender.getDroppedCount(Level.WARN));
+    }
+
+    @Test
+    void testAppend_DropsInfoButKeepsErrorsWhenFull() throws Exception {
+        // Arrange
+        start(4);
+        appender.doAppend(event(Level.INFO, "blocks the worker"));
+        waitUntil(() -> target.entered.getCount() == 0);
+        for (int i = 0; i < 4; i++)
+            appender.doAppend(event(Level.INFO, "fills " + i));
+
+        // Act
+        appender.doAppend(event(Level.DEBUG, "dropped debug"));
+        appender.doAppend(event(Level.INFO, "dropped info"));
+        Thread error = new Thread(() -> appender.doAppend(event(Level.ERROR, "kept error")));
+        error.start();
+        Thread.sleep(50);
+        target.release.countDown();
+        error.join(5000);
+
+        // Assert
+        waitUntil(() -> target.events.size() == 6);
+        assertEquals(1, appender.getDroppedCount(Level.DEBUG));
+        assertEquals(1, appender.getDroppedCount(Level.INFO));
+        assertEquals(0, appender.getDroppedCount(Level.ERROR));
+        assertEquals("kept error", target.events.get(5).getFormattedMessage());
+    }
+
+    private void start(int capacity) {
+        target.setContext(context);
+        target.start();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setCapacity(capacity);
+        appender.setBatchSize(16);
+        appender.addAppender(target);
+        appender.start();
+    }
+
+    private ILoggingEvent event(Level level, String message) {
+        return new LoggingEvent(RingBufferAppenderTest.class.getName(), context.getLogger("test"), level, message, null, null);
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                fail("Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class BlockingListAppender extends AppenderBase<ILoggingEvent> {
+        private final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }
+    }
+}
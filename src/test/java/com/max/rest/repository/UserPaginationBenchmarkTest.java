@@ -0,0 +1,90 @@
+package com.max.rest.repository;
+
+import com.max.rest.entity.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares per-page latency of offset and keyset pagination at increasing depths.
+ * Run with {@code mvn test -Dtest=UserPaginationBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserPaginationBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int ROUNDS = 20;
+    private static final LocalDate FROM = LocalDate.of(1950, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2005, 12, 31);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        int days = (int) (TO.toEpochDay() - FROM.toEpochDay());
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{"bench" + i + "@example.com", "hash", "First", "Last",
+                    Date.valueOf(FROM.plusDays((i * 7919L) % days))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, password, first_name, last_name, birth_date) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    void benchmarkOffsetVersusKeyset() {
+        System.out.printf("%10s %14s %14s %14s %14s%n", "depth", "offset id", "keyset id", "offset date", "keyset date");
+        for (int depth : new int[]{0, 1_000, 10_000, 50_000, 100_000, 190_000}) {
+            int page = depth / PAGE_SIZE;
+            PageRequest byId = PageRequest.of(page, PAGE_SIZE, Sort.by("id"));
+            PageRequest byDate = PageRequest.of(page, PAGE_SIZE, Sort.by("birthDate", "id"));
+
+            UserEntity lastById = userRepository.findAll(PageRequest.of(page == 0 ? 0 : page - 1, PAGE_SIZE, Sort.by("id")))
+                    .getContent().get(PAGE_SIZE - 1);
+            UserEntity lastByDate = userRepository.findAllByBirthDateBetween(FROM, TO,
+                    PageRequest.of(page == 0 ? 0 : page - 1, PAGE_SIZE, Sort.by("birthDate", "id"))).getContent().get(PAGE_SIZE - 1);
+            PageRequest limit = PageRequest.of(0, PAGE_SIZE + 1);
+
+            assertEquals(userRepository.findAll(byId).getContent().get(0).getId(),
+                    page == 0 ? userRepository.findPageAfterId(Long.MIN_VALUE, limit).get(0).getId()
+                            : userRepository.findPageAfterId(lastById.getId(), limit).get(0).getId());
+
+            System.out.printf("%10d %12.2fms %12.2fms %12.2fms %12.2fms%n", depth,
+                    millis(() -> userRepository.findAll(byId).getNumberOfElements()),
+                    millis(() -> userRepository.findPageAfterId(lastById.getId(), limit).size()),
+                    millis(() -> userRepository.findAllByBirthDateBetween(FROM, TO, byDate).getNumberOfElements()),
+                    millis(() -> userRepository.findPageAfterBirthDate(lastByDate.getBirthDate(), lastByDate.getId(), TO, limit).size()));
+        }
+    }
+
+    private static double millis(LongSupplier query) {
+        for (int i = 0; i < 3; i++)
+            query.getAsLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+            query.getAsLong();
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+}
@@ -0,0 +1,97 @@
+package com.max.rest.repository;
+
+import com.max.rest.dto.User;
+import com.max.rest.utils.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares latency and allocated bytes per page of loading managed entities and mapping them
+ * against selecting straight into {@link User}. Each page runs in its own transaction, flushed at
+ * commit like a request in {@code UserServiceImpl}.
+ * Run with {@code mvn test -Dtest=UserProjectionBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserProjectionBenchmarkTest {
+
+    private static final int ROWS = 50_000;
+    private static final int ROUNDS = 50;
+    private static final LocalDate FROM = LocalDate.of(1950, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2005, 12, 31);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        int days = (int) (TO.toEpochDay() - FROM.toEpochDay());
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{"bench" + i + "@example.com", "$2a$10$" + "x".repeat(53), "First", "Last",
+                    Date.valueOf(FROM.plusDays((i * 7919L) % days)), "Some street " + i, "+1234567890"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (email, password, first_name, last_name, birth_date, address, phone_number) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    void benchmarkEntityVersusProjection() {
+        System.out.printf("%6s %14s %14s %14s %14s%n", "size", "entity", "projection", "entity B", "projection B");
+        for (int size : new int[]{10, 100, 500}) {
+            PageRequest page = PageRequest.of(3, size);
+            Supplier<Page<User>> entities = () -> transactionTemplate.execute(status ->
+                    userRepository.findAllByBirthDateBetween(FROM, TO, page).map(userMapper::userEntityToUser));
+            Supplier<Page<User>> projections = () -> transactionTemplate.execute(status ->
+                    userRepository.findUsersByBirthDateBetween(FROM, TO, page));
+
+            assertEquals(entities.get().getContent(), projections.get().getContent());
+
+            double[] entity = measure(entities);
+            double[] projection = measure(projections);
+            System.out.printf("%6d %12.3fms %12.3fms %14.0f %14.0f%n", size, entity[0], projection[0], entity[1],
+                    projection[1]);
+        }
+    }
+
+    // Average milliseconds and bytes allocated by this thread per call
+    private static double[] measure(Supplier<?> query) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < ROUNDS; i++)
+            query.get();
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+            query.get();
+        long elapsed = System.nanoTime() - start;
+        return new double[]{elapsed / 1e6 / ROUNDS, (double) (threads.getCurrentThreadAllocatedBytes() - bytes) / ROUNDS};
+    }
+}
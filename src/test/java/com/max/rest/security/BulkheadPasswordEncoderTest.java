@@ -0,0 +1,78 @@
+package com.max.rest.security;
+
+import com.max.rest.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadPasswordEncoderTest {
+
+    @Test
+    void testEncode_RejectsWhenSaturated() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BulkheadPasswordEncoder encoder = new BulkheadPasswordEncoder(new BlockingEncoder(release), 1, 1, 2, meterRegistry);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<String> running = callers.submit(() -> encoder.encode("first"));
+        Future<String> queued = callers.submit(() -> encoder.encode("second"));
+        waitUntil(() -> meterRegistry.get("password.hashing.queue").gauge().value() == 1);
+
+        // Act
+        ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class,
+                () -> encoder.encode("third"));
+        release.countDown();
+
+        // Assert
+        assertEquals(2, exception.getRetryAfterSeconds());
+        assertEquals("encoded:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("encoded:second", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+        assertEquals(2, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        callers.shutdown();
+        encoder.close();
+    }
+
+    @Test
+    void testMatches_RunsOnHashingPool() {
+        // Arrange
+        BulkheadPasswordEncoder encoder = new BulkheadPasswordEncoder(new BlockingEncoder(new CountDownLatch(0)),
+                2, 4, 1, new SimpleMeterRegistry());
+
+        // Act & Assert
+        assertTrue(encoder.matches("password", "encoded:password"));
+        assertFalse(encoder.matches("password", "encoded:other"));
+        encoder.close();
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > deadline)
+                fail("Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "encoded:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
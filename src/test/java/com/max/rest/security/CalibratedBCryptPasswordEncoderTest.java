@@ -0,0 +1,54 @@
+package com.max.rest.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CalibratedBCryptPasswordEncoderTest {
+
+    @Test
+    void testUpgradeEncoding_WhenCostDiffers() {
+        // Arrange
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        // Act & Assert
+        assertFalse(encoder.upgradeEncoding(encoder.encode("password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void testDelegatingEncoder_MatchesAndUpgradesLegacyHashes() {
+        // Arrange
+        CalibratedBCryptPasswordEncoder bcrypt = new CalibratedBCryptPasswordEncoder(4);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        String legacy = bcrypt.encode("password");
+
+        // Act
+        String current = encoder.encode("password");
+
+        // Assert
+        assertTrue(current.startsWith("{bcrypt}"));
+        assertTrue(encoder.matches("password", legacy));
+        assertTrue(encoder.matches("password", current));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertFalse(encoder.upgradeEncoding(current));
+    }
+
+    @Test
+    void testCalibrator_PicksStrengthClosestToTarget() {
+        // 10 ms at strength 10 -> 20 ms at 11, 40 ms at 12, 80 ms at 13
+        double baseNanos = 10_000_000;
+
+        assertEquals(12, BCryptStrengthCalibrator.pick(baseNanos, 50, 10, 14));
+        assertEquals(13, BCryptStrengthCalibrator.pick(baseNanos, 70, 10, 14));
+        assertEquals(10, BCryptStrengthCalibrator.pick(baseNanos, 1, 10, 14));
+        assertEquals(14, BCryptStrengthCalibrator.pick(baseNanos, 10_000, 10, 14));
+    }
+}
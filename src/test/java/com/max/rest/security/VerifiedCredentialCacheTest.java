@@ -0,0 +1,53 @@
+package com.max.rest.security;
+
+import com.max.rest.dto.UserCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VerifiedCredentialCacheTest {
+
+    private final VerifiedCredentialCache cache = new VerifiedCredentialCache(true, 60, 100, new SimpleMeterRegistry());
+
+    @Test
+    void testGet_MatchesOnlyVerifiedPassword() {
+        // Arrange
+        cache.put("user@example.com", "password", "{bcrypt}hash", cache.generation());
+
+        // Act
+        UserCredentials hit = cache.get("user@example.com", "password");
+
+        // Assert
+        assertNotNull(hit);
+        assertEquals("user@example.com", hit.getEmail());
+        assertEquals("{bcrypt}hash", hit.getPassword());
+        assertNull(cache.get("user@example.com", "wrong"));
+        assertNull(cache.get("other@example.com", "password"));
+    }
+
+    @Test
+    void testPut_SkippedWhenInvalidatedSinceRead() {
+        // Arrange
+        long generation = cache.generation();
+        cache.invalidate("user@example.com");
+
+        // Act
+        cache.put("user@example.com", "password", "{bcrypt}hash", generation);
+
+        // Assert
+        assertNull(cache.get("user@example.com", "password"));
+    }
+
+    @Test
+    void testDisabled_NeverCaches() {
+        // Arrange
+        VerifiedCredentialCache disabled = new VerifiedCredentialCache(false, 60, 100, new SimpleMeterRegistry());
+
+        // Act
+        disabled.put("user@example.com", "password", "{bcrypt}hash", disabled.generation());
+
+        // Assert
+        assertNull(disabled.get("user@example.com", "password"));
+    }
+}
@@ -0,0 +1,221 @@
+package com.max.rest.service;
+
+import com.max.rest.cache.TokenRevocationList;
+import com.max.rest.cache.VerifiedTokenCache;
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
+import com.max.rest.dto.UserCredentials;
+import com.max.rest.security.JwtKeyRing;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class JwtProviderServiceImplTest {
+
+    private static final String ACCESS_SECRET =
+            "qBTmv4oXFFR2GwjexDJ3t6fsIUIUhhXqlktXjXdkcyygs8nPVEwMfo29VDRRepYDVV5IkIxBMzr7OEHXEHd37w==";
+    private static final String REFRESH_SECRET =
+            "zL1HB3Pch05Avfynovxrf/kpF9O2m4NCWKJUjEp27s1J2jEG3ifiKCGylaZ8fDeoONSTJP/wAzKawB8F9rOMNg==";
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private TokenRevocationList revocationList;
+
+    private JwtProviderServiceImpl jwtProvider;
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(100, new SimpleMeterRegistry());
+        revocationList = new TokenRevocationList(Duration.ofMinutes(60), 1000, 0.01, new SimpleMeterRegistry());
+        jwtProvider = new JwtProviderServiceImpl(ACCESS_SECRET, REFRESH_SECRET, 60, 30, 4, verifiedTokenCache,
+                revocationList, new JwtKeyRing("HS512", List.of()));
+    }
+
+    @Test
+    void testRevokeAccess_RejectsCachedToken() {
+        // Arrange
+        String token = jwtProvider.generateAccessToken(new UserCredentials("test@example.com", "password"));
+        String other = jwtProvider.generateAccessToken(new UserCredentials("other@example.com", "password"));
+        TokenVerification verification = jwtProvider.verifyAccess(token);
+
+        // Act
+        jwtProvider.revokeAccess(token, verification);
+        revocationList.rotate();
+
+        // Assert
+        assertEquals(TokenStatus.REVOKED, jwtProvider.verifyAccess(token).getStatus());
+        assertTrue(jwtProvider.verifyAccess(other).isValid());
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    void testVerifyAccess_AsymmetricSigningAcceptsLegacyTokens() {
+        // Arrange
+        JwtProviderServiceImpl asymmetric = new JwtProviderServiceImpl(ACCESS_SECRET, REFRESH_SECRET, 60, 30, 4,
+                new VerifiedTokenCache(100, new SimpleMeterRegistry()), revocationList, new JwtKeyRing("ES256", List.of()));
+        UserCredentials user = new UserCredentials("test@example.com", "password");
+        String legacyToken = jwtProvider.generateAccessToken(user);
+
+        // Act
+        String token = asymmetric.generateAccessToken(user);
+
+        // Assert
+        assertTrue(token.startsWith("eyJhbGciOiJFUzI1NiIsImtpZCI6"));
+        assertEquals("test@example.com", asymmetric.verifyAccess(token).getSubject());
+        assertEquals("test@example.com", asymmetric.verifyAccess(legacyToken).getSubject());
+        assertTrue(asymmetric.verifyRefresh(asymmetric.generateRefreshToken(user)).isValid());
+        assertFalse(jwtProvider.verifyAccess(token).isValid());
+    }
+
+    @Test
+    void testVerifyAccess_LegacyTokensOnlyAcceptedForOneLifetimeAfterSwitch() {
+        // Arrange
+        long start = System.currentTimeMillis();
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(start, start + Duration.ofMinutes(59).toMillis(),
+                start + Duration.ofMinutes(60).toMillis());
+        JwtProviderServiceImpl asymmetric = new JwtProviderServiceImpl(ACCESS_SECRET, REFRESH_SECRET, 60, 30, 4,
+                new VerifiedTokenCache(100, new SimpleMeterRegistry()), revocationList, new JwtKeyRing("ES256", List.of()),
+                clock);
+        UserCredentials user = new UserCredentials("test@example.com", "password");
+        String legacyToken = jwtProvider.generateAccessToken(user);
+
+        // Act
+        TokenVerification withinWindow = asymmetric.verifyAccess(legacyToken);
+        TokenVerification afterWindow = asymmetric.verifyAccess(legacyToken);
+
+        // Assert
+        assertTrue(withinWindow.isValid());
+        assertEquals(TokenStatus.UNSUPPORTED, afterWindow.getStatus());
+        assertTrue(asymmetric.verifyAccess(asymmetric.generateAccessToken(user)).isValid());
+    }
+
+    @Test
+    void testVerifyAccessBatch_KeepsOrder() {
+        // Arrange
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            tokens.add(jwtProvider.generateAccessToken(new UserCredentials("user" + i + "@example.com", "password")));
+        tokens.add(5, "not-a-token");
+        tokens.add(null);
+
+        // Act
+        List<TokenVerification> results = jwtProvider.verifyAccessBatch(tokens);
+
+        // Assert
+        assertEquals(tokens.size(), results.size());
+        assertEquals(TokenStatus.MALFORMED, results.get(5).getStatus());
+        assertEquals(TokenStatus.MALFORMED, results.get(tokens.size() - 1).getStatus());
+        assertEquals("user0@example.com", results.get(0).getSubject());
+        assertEquals("user5@example.com", results.get(6).getSubject());
+        assertEquals("user19@example.com", results.get(20).getSubject());
+    }
+
+    @Test
+    void testVerifyAccess_CachesVerifiedToken() {
+        // Arrange
+        String token = jwtProvider.generateAccessToken(new UserCredentials("test@example.com", "password"));
+
+        // Act
+        TokenVerification first = jwtProvider.verifyAccess(token);
+        TokenVerification second = jwtProvider.verifyAccess(token);
+
+        // Assert
+        assertTrue(first.isValid());
+        assertSame(first, second);
+        assertEquals("test@example.com", first.getSubject());
+        assertTrue(first.getExpiration().isAfter(new Date().toInstant()));
+        assertEquals(1, verifiedTokenCache.stats().missCount());
+        assertEquals(1, verifiedTokenCache.stats().hitCount());
+        assertEquals(1, verifiedTokenCache.size());
+    }
+
+    @Test
+    void testVerifyAccess_TamperedSignature() {
+        // Arrange
+        String token = jwtProvider.generateAccessToken(new UserCredentials("test@example.com", "password"));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // Act
+        TokenVerification verification = jwtProvider.verifyAccess(tampered);
+
+        // Assert
+        assertEquals(TokenStatus.INVALID_SIGNATURE, verification.getStatus());
+        assertEquals(0, verifiedTokenCache.size());
+    }
+
+    @Test
+    void testVerifyAccess_ExpiredToken() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(ACCESS_SECRET)))
+                .compact();
+
+        // Act & Assert
+        assertEquals(TokenStatus.EXPIRED, jwtProvider.verifyAccess(token).getStatus());
+    }
+
+    @Test
+    void testVerifyAccess_MalformedToken() {
+        assertEquals(TokenStatus.MALFORMED, jwtProvider.verifyAccess("not-a-token").getStatus());
+        assertEquals(TokenStatus.MALFORMED, jwtProvider.verifyAccess("eyJhbGciOiJIUzUxMiJ9.a*b.c").getStatus());
+        assertEquals(TokenStatus.MALFORMED, jwtProvider.verifyAccess(null).getStatus());
+    }
+
+    @Test
+    void testVerifyAccess_UnsignedTokenIsUnsupported() {
+        // Arrange
+        String token = Jwts.builder()
+                .setSubject("test@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .compact();
+
+        // Act & Assert
+        assertEquals(TokenStatus.UNSUPPORTED, jwtProvider.verifyAccess(token).getStatus());
+    }
+
+    @Test
+    void testVerifyAccess_NonDefaultHeaderFallsBackToParser() {
+        // Arrange
+        String token = Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setSubject("test@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(ACCESS_SECRET)))
+                .compact();
+
+        // Act
+        TokenVerification verification = jwtProvider.verifyAccess(token);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertEquals("test@example.com", verification.getSubject());
+    }
+
+    @Test
+    void testVerifyRefresh_KeysAreNotInterchangeable() {
+        // Arrange
+        UserCredentials user = new UserCredentials("test@example.com", "password");
+        String accessToken = jwtProvider.generateAccessToken(user);
+        String refreshToken = jwtProvider.generateRefreshToken(user);
+
+        // Act & Assert
+        assertEquals(TokenStatus.INVALID_SIGNATURE, jwtProvider.verifyAccess(refreshToken).getStatus());
+        assertEquals(TokenStatus.INVALID_SIGNATURE, jwtProvider.verifyRefresh(accessToken).getStatus());
+        assertTrue(jwtProvider.verifyRefresh(refreshToken).isValid());
+    }
+}
@@ -0,0 +1,175 @@
+package com.max.rest.service;
+
+import com.max.rest.cache.RegisteredEmailFilter;
+import com.max.rest.dto.UserBatchResult;
+import com.max.rest.dto.UserBatchStatus;
+import com.max.rest.dto.UserRequest;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.exception.ServiceOverloadedException;
+import com.max.rest.repository.UserRepository;
+import com.max.rest.utils.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class UserBatchServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<UserEntity>> entitiesCaptor;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    private RegisteredEmailFilter registeredEmails;
+
+    private UserBatchServiceImpl userBatchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registeredEmails = new RegisteredEmailFilter(true, 100, 0.01, 100, mock(JdbcTemplate.class));
+        userBatchService = new UserBatchServiceImpl(userRepository, userMapper, passwordEncoder, registeredEmails,
+                transactionManager, 2);
+    }
+
+    @Test
+    void testSaveUsers() {
+        // Arrange
+        Map<Integer, UserRequest> requests = new LinkedHashMap<>();
+        requests.put(0, request("first@example.com"));
+        requests.put(2, request("taken@example.com"));
+        requests.put(3, request("second@example.com"));
+        requests.put(5, request("FIRST@example.com"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("Taken@example.com"));
+
+        // Act
+        List<UserBatchResult> results = userBatchService.saveUsers(requests);
+
+        // Assert
+        assertEquals(List.of(0, 2, 3, 5), results.stream().map(UserBatchResult::getIndex).toList());
+        assertEquals(List.of(UserBatchStatus.CREATED, UserBatchStatus.REJECTED, UserBatchStatus.CREATED,
+                UserBatchStatus.REJECTED), results.stream().map(UserBatchResult::getStatus).toList());
+        verify(userRepository, times(2)).findExistingEmails(anyCollection());
+        verify(userRepository, times(2)).saveAll(entitiesCaptor.capture());
+        UserEntity created = entitiesCaptor.getAllValues().get(0).get(0);
+        assertEquals("first@example.com", created.getEmail());
+        assertTrue(passwordEncoder.matches("password123", created.getPassword()));
+        assertTrue(registeredEmails.reserve("first@example.com"));
+    }
+
+    @Test
+    void testSaveUsers_SkipsLookupForUnknownEmails() {
+        // Arrange
+        registeredEmails.load();
+        Map<Integer, UserRequest> requests = Map.of(0, request("new@example.com"));
+
+        // Act
+        List<UserBatchResult> results = userBatchService.saveUsers(requests);
+
+        // Assert
+        assertEquals(UserBatchStatus.CREATED, results.get(0).getStatus());
+        verify(userRepository, never()).findExistingEmails(anyCollection());
+    }
+
+    @Test
+    void testSaveUsers_ConcurrentRegistrationRetriesChunkRowByRow() {
+        // Arrange
+        Map<Integer, UserRequest> requests = new LinkedHashMap<>();
+        requests.put(0, request("first@example.com"));
+        requests.put(1, request("second@example.com"));
+        requests.put(2, request("third@example.com"));
+        when(userRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(userRepository.existsByEmail("second@example.com")).thenReturn(true);
+
+        // Act
+        List<UserBatchResult> results = userBatchService.saveUsers(requests);
+
+        // Assert
+        assertEquals(List.of(UserBatchStatus.CREATED, UserBatchStatus.REJECTED, UserBatchStatus.CREATED),
+                results.stream().map(UserBatchResult::getStatus).toList());
+        assertEquals(List.of("User with email 'second@example.com' already registered"), results.get(1).getErrors());
+        verify(userRepository, times(2)).saveAndFlush(any());
+    }
+
+    @Test
+    void testSaveUsers_OtherConstraintViolationIsNotReportedAsRegistered() {
+        // Arrange
+        Map<Integer, UserRequest> requests = new LinkedHashMap<>();
+        requests.put(0, request("first@example.com"));
+        requests.put(1, request("second@example.com"));
+        when(userRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("Value too long for column"));
+        when(userRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("Value too long for column"));
+
+        // Act
+        List<UserBatchResult> results = userBatchService.saveUsers(requests);
+
+        // Assert
+        assertEquals(UserBatchStatus.CREATED, results.get(0).getStatus());
+        assertEquals(UserBatchStatus.REJECTED, results.get(1).getStatus());
+        assertEquals(List.of("Not created: the row was refused by the database"), results.get(1).getErrors());
+        verify(userRepository).existsByEmail("second@example.com");
+    }
+
+    @Test
+    void testSaveUsers_OverloadRejectsUnprocessedItems() {
+        // Arrange
+        PasswordEncoder overloaded = mock(PasswordEncoder.class);
+        when(overloaded.encode(any())).thenReturn("hash", "hash")
+                .thenThrow(new ServiceOverloadedException("Password hashing is overloaded", 1));
+        userBatchService = new UserBatchServiceImpl(userRepository, userMapper, overloaded, registeredEmails,
+                transactionManager, 2);
+        Map<Integer, UserRequest> requests = new LinkedHashMap<>();
+        requests.put(0, request("first@example.com"));
+        requests.put(1, request("second@example.com"));
+        requests.put(2, request("third@example.com"));
+        requests.put(3, request("fourth@example.com"));
+
+        // Act
+        List<UserBatchResult> results = userBatchService.saveUsers(requests);
+
+        // Assert
+        assertEquals(List.of(UserBatchStatus.CREATED, UserBatchStatus.CREATED, UserBatchStatus.REJECTED,
+                UserBatchStatus.REJECTED), results.stream().map(UserBatchResult::getStatus).toList());
+        verify(userRepository, times(1)).saveAll(any());
+        assertTrue(registeredEmails.reserve("third@example.com"));
+    }
+
+    private static UserRequest request(String email) {
+        return new UserRequest(email, "password123", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+    }
+}
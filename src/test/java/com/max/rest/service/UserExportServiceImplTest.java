@@ -0,0 +1,61 @@
+package com.max.rest.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "app.users.export.clear-interval=2")
+@ActiveProfiles("test")
+@Transactional
+public class UserExportServiceImplTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testExportUsers() throws Exception {
+        // Arrange
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            users.add(new UserEntity(null, "export" + i + "@example.com", "hash", "John", "Doe",
+                    LocalDate.of(1990, 1, 1), null, null));
+        userRepository.saveAllAndFlush(users);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long exported = userExportService.exportUsers(output);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(userRepository.count(), exported);
+        assertEquals(exported, lines.length);
+        long previousId = Long.MIN_VALUE;
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertFalse(user.has("password"));
+            assertTrue(user.get("id").asLong() > previousId);
+            previousId = user.get("id").asLong();
+        }
+        assertEquals("export4@example.com", objectMapper.readTree(lines[lines.length - 1]).get("email").asText());
+    }
+}
@@ -0,0 +1,224 @@
+package com.max.rest.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.max.rest.cache.RegisteredEmailFilter;
+import com.max.rest.dto.UserImportFormat;
+import com.max.rest.dto.UserImportSummary;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.exception.ValidationException;
+import com.max.rest.repository.UserRepository;
+import com.max.rest.utils.UserMapper;
+import com.max.rest.utils.UserRequestValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class UserImportServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<UserEntity>> entitiesCaptor;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserRequestValidator userRequestValidator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private RegisteredEmailFilter registeredEmails;
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registeredEmails = new RegisteredEmailFilter(true, 100, 0.01, 100, mock(JdbcTemplate.class));
+        UserBatchService userBatchService = new UserBatchServiceImpl(userRepository, userMapper, passwordEncoder,
+                registeredEmails, transactionManager, 2);
+        userImportService = new UserImportServiceImpl(userBatchService, userRequestValidator, objectMapper,
+                new SimpleMeterRegistry(), 2, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.shutdown();
+    }
+
+    @Test
+    void testImportUsers_Csv() throws Exception {
+        // Arrange
+        String csv = """
+                email,password,firstName,lastName,birthDate,address
+                first@example.com,password123,John,Doe,1990-01-01,"12 Main St, ""Apt"" 3"
+                not-an-email,password123,John,Doe,1990-01-01,
+
+                second@example.com,password123,Jane,Doe,01.01.1990,
+                third@example.com,password123,Jane,"Multi
+                Line",1990-01-01,
+                FIRST@example.com,password123,John,Doe,1990-01-01,
+                """;
+        when(userRepository.findExistingEmails(argThat(emails -> emails.contains("FIRST@example.com"))))
+                .thenReturn(List.of("first@example.com"));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(input(csv), UserImportFormat.CSV, report);
+
+        // Assert
+        assertNull(summary.getError());
+        assertEquals(5, summary.getRows());
+        assertEquals(2, summary.getCreated());
+        assertEquals(3, summary.getRejected());
+
+        List<JsonNode> lines = lines(report);
+        assertEquals(List.of(3L, 5L, 8L), lines.subList(0, 3).stream().map(line -> line.get("line").asLong()).toList());
+        assertTrue(lines.get(0).get("errors").get(0).asText().startsWith("email:"));
+        assertEquals("birthDate: must be a date in yyyy-MM-dd format", lines.get(1).get("errors").get(0).asText());
+        assertEquals(5, lines.get(3).get("rows").asLong());
+
+        verify(userRepository, atLeastOnce()).saveAll(entitiesCaptor.capture());
+        List<UserEntity> saved = entitiesCaptor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals("12 Main St, \"Apt\" 3", saved.get(0).getAddress());
+        assertEquals("Multi\nLine", saved.get(1).getLastName());
+        assertTrue(registeredEmails.reserve("first@example.com"));
+    }
+
+    @Test
+    void testImportUsers_Ndjson() throws Exception {
+        // Arrange
+        String ndjson = """
+                {"email":"first@example.com","password":"password123","firstName":"John","lastName":"Doe","birthDate":"1990-01-01"}
+                {"email":"second@example.com",
+                {"email":"third@example.com","password":"password123","firstName":"Jane","lastName":"Doe","birthDate":"2020-01-01"}
+                """;
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(input(ndjson), UserImportFormat.NDJSON, report);
+
+        // Assert
+        assertEquals(1, summary.getCreated());
+        List<JsonNode> lines = lines(report);
+        assertTrue(lines.get(0).get("errors").get(0).asText().startsWith("Malformed JSON"));
+        assertEquals(3, lines.get(1).get("line").asLong());
+        assertTrue(lines.get(1).get("errors").get(0).asText().startsWith("Validation failed. Minimum age"));
+    }
+
+    @Test
+    void testImportUsers_UnknownCsvColumn() {
+        // Arrange
+        String csv = "email,nickname\n";
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> userImportService.importUsers(input(csv), UserImportFormat.CSV, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testImportUsers_InsertFailureStopsImport() throws Exception {
+        // Arrange
+        StringBuilder csv = new StringBuilder("email,password,firstName,lastName,birthDate\n");
+        for (int i = 0; i < 50; i++)
+            csv.append("user").append(i).append("@example.com,password123,John,Doe,1990-01-01\n");
+        when(userRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new IllegalStateException("Connection lost"));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(input(csv.toString()), UserImportFormat.CSV, report);
+
+        // Assert
+        assertNotNull(summary.getError());
+        assertEquals(2, summary.getCreated());
+        assertEquals(summary.getRows(), lines(report).get(0).get("rows").asLong());
+        for (int i = 0; i < 50; i++)
+            assertTrue(registeredEmails.reserve("user" + i + "@example.com"));
+    }
+
+    @Test
+    void testImportUsers_HoldsReportUntilInputIsRead() throws Exception {
+        // Arrange
+        StringBuilder csv = new StringBuilder("email,password,firstName,lastName,birthDate\n");
+        for (int i = 0; i < 200; i++)
+            csv.append("not-an-email-").append(i).append(",password123,John,Doe,1990-01-01\n");
+        AtomicBoolean inputRead = new AtomicBoolean();
+        AtomicBoolean writtenEarly = new AtomicBoolean();
+        InputStream upload = new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] bytes, int offset, int length) {
+                int count = super.read(bytes, offset, length);
+                if (count < 0)
+                    inputRead.set(true);
+                return count;
+            }
+        };
+        ByteArrayOutputStream report = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] bytes, int offset, int length) {
+                if (!inputRead.get())
+                    writtenEarly.set(true);
+                super.write(bytes, offset, length);
+            }
+        };
+
+        // Act
+        UserImportSummary summary = userImportService.importUsers(upload, UserImportFormat.CSV, report);
+
+        // Assert
+        assertFalse(writtenEarly.get());
+        assertEquals(200, summary.getRejected());
+        List<JsonNode> lines = lines(report);
+        assertEquals(201, lines.size());
+        assertEquals(2, lines.get(0).get("line").asLong());
+        assertEquals(201, lines.get(199).get("line").asLong());
+    }
+
+    private static ByteArrayInputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream report) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : report.toString(StandardCharsets.UTF_8).split("\n"))
+            lines.add(objectMapper.readTree(line));
+        return lines;
+    }
+}
@@ -0,0 +1,106 @@
+package com.max.rest.service;
+
+import com.max.rest.cache.UserVersionCache;
+import com.max.rest.dto.User;
+import com.max.rest.dto.UserUpdateRequest;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.exception.PreconditionFailedException;
+import com.max.rest.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Lands a committed write from another connection between an update's read and its UPDATE, with
+ * every transaction at REPEATABLE READ.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ",
+        "app.users.cache.enabled=false"
+})
+@ActiveProfiles("test")
+public class UserServiceConcurrentUpdateTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private UserVersionCache versionCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.save(new UserEntity(null, "race@example.com", "hash", "John", "Doe",
+                LocalDate.of(1990, 1, 1), null, null)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(userId);
+    }
+
+    @Test
+    void testPartialUpdateUser_RetriesWithoutIfMatch() {
+        // Arrange
+        interleaveConcurrentWrite();
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setLastName("Smith");
+
+        // Act
+        User updated = userService.partialUpdateUser(userId, request, null);
+
+        // Assert
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT first_name, last_name, version FROM users WHERE id = ?", userId);
+        assertEquals("Jim", row.get("first_name"));
+        assertEquals("Smith", row.get("last_name"));
+        assertEquals(2L, ((Number) row.get("version")).longValue());
+        assertEquals(2L, updated.getVersion());
+        assertEquals("Jim", updated.getFirstName());
+    }
+
+    @Test
+    void testPartialUpdateUser_IfMatchFailsOnceAnotherWriteLands() {
+        // Arrange
+        interleaveConcurrentWrite();
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setLastName("Smith");
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> userService.partialUpdateUser(userId, request, Set.of(0L)));
+        assertEquals("Doe", jdbcTemplate.queryForObject("SELECT last_name FROM users WHERE id = ?", String.class, userId));
+    }
+
+    // The version cache is dropped after the row is read and just before the UPDATE, so the first
+    // time that happens another connection commits a write of its own
+    private void interleaveConcurrentWrite() {
+        AtomicBoolean written = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (written.compareAndSet(false, true))
+                CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                        "UPDATE users SET first_name = 'Jim', version = version + 1 WHERE id = ?", userId)).join();
+            return invocation.callRealMethod();
+        }).when(versionCache).invalidate(userId);
+    }
+}
@@ -1,15 +1,25 @@
 package com.max.rest.service;
 
+import com.max.rest.cache.BirthDateIndex;
+import com.max.rest.cache.RegisteredEmailFilter;
+import com.max.rest.cache.UserEntityCache;
+import com.max.rest.cache.UserVersionCache;
 import com.max.rest.dto.User;
 import com.max.rest.dto.UserCredentials;
 import com.max.rest.dto.UserRequest;
+import com.max.rest.dto.UserSlice;
 import com.max.rest.dto.UserUpdateRequest;
 import com.max.rest.entity.UserEntity;
 import com.max.rest.exception.NotFoundException;
+import com.max.rest.exception.PreconditionFailedException;
 import com.max.rest.exception.RegistrationException;
 import com.max.rest.exception.ValidationException;
 import com.max.rest.repository.UserRepository;
+import com.max.rest.security.VerifiedCredentialCache;
+import com.max.rest.utils.UserCursor;
 import com.max.rest.utils.UserMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -19,21 +29,33 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
+@ActiveProfiles("test")
 public class UserServiceImplTest {
 
     @Value("${app.minimum-age}")
@@ -45,59 +67,60 @@ public class UserServiceImplTest {
     @Captor
     private ArgumentCaptor<UserEntity> userEntityCaptor;
 
+    @Captor
+    private ArgumentCaptor<Map<String, Object>> changesCaptor;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     @Autowired
     private UserMapper userMapper;
 
+    private VerifiedCredentialCache credentialCache;
+
+    private RegisteredEmailFilter registeredEmails;
+
+    private UserVersionCache versionCache;
+
     private UserServiceImpl userService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        userService = new UserServiceImpl(userMapper, userRepository, passwordEncoder);
+        credentialCache = new VerifiedCredentialCache(true, 60, 100, new SimpleMeterRegistry());
+        registeredEmails = new RegisteredEmailFilter(true, 100, 0.01, 100, mock(JdbcTemplate.class));
+        versionCache = new UserVersionCache(true, 60, 100, new SimpleMeterRegistry());
+        userService = new UserServiceImpl(userMapper, userRepository, passwordEncoder, credentialCache,
+                new BirthDateIndex(false, 100, null, new SimpleMeterRegistry()),
+                new UserEntityCache(true, 60, 100, new SimpleMeterRegistry()),
+                registeredEmails, versionCache, mock(PlatformTransactionManager.class));
     }
 
     @Test
     void testUpdateUser() {
         // Arrange
         Long userId = 1L;
-        UserRequest userRequest = new UserRequest("test@example.com", "password", "John", "Doe",
-                LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        UserEntity existingUser = new UserEntity(userId, "test@example.com",
-                passwordEncoder.encode(userRequest.getPassword()), "John", "Doe",
-                LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail(userRequest.getEmail())).thenReturn(false);
-        when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> {
-            UserEntity entity = invocation.getArgument(0);
-            entity.setId(userId);
-            entity.setEmail(userRequest.getEmail());
-            entity.setPassword(passwordEncoder.encode(userRequest.getPassword()));
-            entity.setFirstName(userRequest.getFirstName());
-            entity.setLastName(userRequest.getLastName());
-            entity.setBirthDate(userRequest.getBirthDate());
-            entity.setAddress(userRequest.getAddress());
-            entity.setPhoneNumber(userRequest.getPhoneNumber());
-            return entity;
-        });
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe",
+                LocalDate.of(1990, 1, 1), null, "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "test@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(1);
 
         // Act
-        User user = userService.updateUser(userId, userRequest);
+        User user = userService.updateUser(userId, userRequest, null);
 
         // Assert
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).existsByEmail(userRequest.getEmail());
-        verify(userRepository, times(1)).save(userEntityCaptor.capture());
-        UserEntity capturedUserEntity = userEntityCaptor.getValue();
-        assertTrue(passwordEncoder.matches(userRequest.getPassword(), capturedUserEntity.getPassword()));
-        assertEquals(user.getEmail(), capturedUserEntity.getEmail());
-        assertEquals(user.getFirstName(), capturedUserEntity.getFirstName());
-        assertEquals(user.getLastName(), capturedUserEntity.getLastName());
-        assertEquals(user.getBirthDate(), capturedUserEntity.getBirthDate());
-        assertEquals(user.getAddress(), capturedUserEntity.getAddress());
-        assertEquals(user.getPhoneNumber(), capturedUserEntity.getPhoneNumber());
+        verify(userRepository, never()).findById(userId);
+        verify(userRepository, never()).existsByEmail(userRequest.getEmail());
+        verify(userRepository, never()).save(any(UserEntity.class));
+        verify(userRepository, times(1)).updateColumns(eq(userId), eq(0L), changesCaptor.capture());
+        Map<String, Object> changes = changesCaptor.getValue();
+        assertEquals(Set.of("firstName", "address", "password"), changes.keySet());
+        assertNull(changes.get("address"));
+        assertTrue(passwordEncoder.matches(userRequest.getPassword(), (String) changes.get("password")));
+        assertEquals(userId, user.getId());
+        assertEquals("Jack", user.getFirstName());
+        assertNull(user.getAddress());
     }
 
     @Test
@@ -105,12 +128,111 @@ public class UserServiceImplTest {
         // Arrange
         Long userId = 1L;
         UserRequest userRequest = new UserRequest("test@example.com", "password", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        UserEntity existingUser = new UserEntity(userId, "old@example.com", "hashedPassword", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail(userRequest.getEmail())).thenReturn(true);
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "old@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenThrow(duplicateEmail(userRequest.getEmail()));
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> userService.updateUser(userId, userRequest, null));
+        verify(userRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    void testUpdateUser_UserDeletedConcurrently() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)),
+                Optional.empty());
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> userService.updateUser(userId, userRequest, null));
+    }
+
+    @Test
+    void testUpdateUser_VersionMismatch() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)));
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(userId, userRequest, Set.of(2L)));
+        verify(userRepository, never()).updateColumns(any(), any(), anyMap());
+    }
+
+    @Test
+    void testUpdateUser_AnyAcceptedVersionMatches() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)));
+        when(userRepository.updateColumns(eq(userId), eq(3L), anyMap())).thenReturn(1);
+
+        // Act
+        User user = userService.updateUser(userId, userRequest, Set.of(2L, 3L));
+
+        // Assert
+        assertEquals(4L, user.getVersion());
+        assertEquals("Jack", user.getFirstName());
+    }
+
+    @Test
+    void testUpdateUser_RetriesOnConcurrentUpdate() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(
+                Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)),
+                Optional.of(new User(userId, "test@example.com", "Jim", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 4L)));
+        when(userRepository.updateColumns(eq(userId), eq(3L), anyMap())).thenReturn(0);
+        when(userRepository.updateColumns(eq(userId), eq(4L), anyMap())).thenReturn(1);
+
+        // Act
+        User user = userService.updateUser(userId, userRequest, null);
+
+        // Assert
+        assertEquals(5L, user.getVersion());
+        assertEquals("Jack", user.getFirstName());
+        verify(userRepository, times(2)).updateColumns(eq(userId), anyLong(), anyMap());
+    }
+
+    @Test
+    void testUpdateUser_LastAttemptWritesUnconditionallyWithoutIfMatch() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(
+                Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)),
+                Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)),
+                Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)),
+                Optional.of(new User(userId, "test@example.com", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 6L)));
+        when(userRepository.updateColumns(eq(userId), eq(3L), anyMap())).thenReturn(0);
+        when(userRepository.updateColumns(eq(userId), isNull(), anyMap())).thenReturn(1);
+
+        // Act
+        User user = userService.updateUser(userId, userRequest, null);
+
+        // Assert
+        assertEquals(6L, user.getVersion());
+        assertEquals("Jack", user.getFirstName());
+        verify(userRepository, times(2)).updateColumns(eq(userId), eq(3L), anyMap());
+        verify(userRepository, times(1)).updateColumns(eq(userId), isNull(), anyMap());
+    }
+
+    @Test
+    void testUpdateUser_IfMatchLosesRace() {
+        // Arrange
+        Long userId = 1L;
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(
+                Optional.of(new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 3L)),
+                Optional.of(new User(userId, "test@example.com", "Jim", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 4L)));
+        when(userRepository.updateColumns(eq(userId), eq(3L), anyMap())).thenReturn(0);
 
         // Act & Assert
-        assertThrows(ValidationException.class, () -> userService.updateUser(userId, userRequest));
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(userId, userRequest, Set.of(3L)));
+        verify(userRepository, never()).updateColumns(eq(userId), isNull(), anyMap());
     }
 
     @Test
@@ -160,21 +282,49 @@ public class UserServiceImplTest {
         assertThrows(RegistrationException.class, () -> userService.saveUser(userRequest));
     }
 
+    @Test
+    void testSaveUser_UnknownEmailSkipsLookup() {
+        // Arrange
+        UserRequest userRequest = new UserRequest("new@example.com", "password", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        registeredEmails.load();
+
+        // Act
+        userService.saveUser(userRequest);
+
+        // Assert
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userRepository, times(1)).flush();
+    }
+
+    @Test
+    void testSaveUser_UniqueConstraintViolation() {
+        // Arrange
+        UserRequest userRequest = new UserRequest("test@example.com", "password", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.existsByEmail(userRequest.getEmail())).thenReturn(false);
+        when(userRepository.save(any(UserEntity.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        // Act & Assert
+        assertThrows(RegistrationException.class, () -> userService.saveUser(userRequest));
+        assertTrue(registeredEmails.reserve(userRequest.getEmail()));
+    }
+
     @Test
     void testGetAllUsers() {
         // Arrange
-        List<UserEntity> userEntities = new ArrayList<>();
-        userEntities.add(new UserEntity(1L, "test1@example.com", "hashedPassword1", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890"));
-        userEntities.add(new UserEntity(2L, "test2@example.com", "hashedPassword2", "Jane", "Smith", LocalDate.of(1995, 5, 15), "456 Oak Ave", "0987654321"));
-        Page<UserEntity> userEntitiesPage = new PageImpl<>(userEntities);
-        when(userRepository.findAll(any(PageRequest.class))).thenReturn(userEntitiesPage);
+        List<User> userEntities = new ArrayList<>();
+        userEntities.add(new User(1L, "test1@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890"));
+        userEntities.add(new User(2L, "test2@example.com", "Jane", "Smith", LocalDate.of(1995, 5, 15), "456 Oak Ave", "0987654321"));
+        Page<User> userEntitiesPage = new PageImpl<>(userEntities);
+        when(userRepository.findAllUsers(any(PageRequest.class))).thenReturn(userEntitiesPage);
 
         // Act
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<User> userPage = userService.getAllUsers(pageRequest);
 
         // Assert
-        verify(userRepository, times(1)).findAll(pageRequest);
+        verify(userRepository, times(1)).findAllUsers(pageRequest);
+        verify(userRepository, never()).findAll(any(PageRequest.class));
         assertEquals(2, userPage.getTotalElements());
         List<User> users = userPage.getContent();
         assertEquals(userEntities.get(0).getId(), users.get(0).getId());
@@ -183,25 +333,76 @@ public class UserServiceImplTest {
         assertEquals(userEntities.get(1).getEmail(), users.get(1).getEmail());
     }
 
+    @Test
+    void testScrollUsers() {
+        // Arrange
+        List<User> userEntities = new ArrayList<>();
+        userEntities.add(new User(3L, "test3@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890"));
+        userEntities.add(new User(4L, "test4@example.com", "Jane", "Smith", LocalDate.of(1995, 5, 15), "456 Oak Ave", "0987654321"));
+        userEntities.add(new User(5L, "test5@example.com", "Jack", "Brown", LocalDate.of(1985, 3, 10), "789 Pine Rd", "1112223333"));
+        when(userRepository.findPageAfterId(2L, PageRequest.of(0, 3))).thenReturn(userEntities);
+
+        // Act
+        UserSlice slice = userService.scrollUsers(UserCursor.afterId(2L).encode(), 2, false);
+
+        // Assert
+        assertEquals(2, slice.getContent().size());
+        assertEquals(4L, slice.getContent().get(1).getId());
+        assertEquals(UserCursor.afterId(4L), UserCursor.decode(slice.getNextCursor(), UserCursor.Order.ID));
+        assertNull(slice.getTotalElements());
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    void testScrollSearchUsers_LastPage() {
+        // Arrange
+        LocalDate fromDate = LocalDate.of(1980, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 1, 1);
+        UserCursor cursor = UserCursor.afterBirthDate(LocalDate.of(1990, 1, 1), 3L);
+        List<User> userEntities = List.of(new User(4L, "test4@example.com", "Jane", "Smith", LocalDate.of(1995, 5, 15), "456 Oak Ave", "0987654321"));
+        when(userRepository.findPageAfterBirthDate(cursor.birthDate(), 3L, toDate, PageRequest.of(0, 3))).thenReturn(userEntities);
+        when(userRepository.countByBirthDateBetween(fromDate, toDate)).thenReturn(4L);
+
+        // Act
+        UserSlice slice = userService.scrollSearchUsers(fromDate, toDate, cursor.encode(), 2, true);
+
+        // Assert
+        assertEquals(1, slice.getContent().size());
+        assertNull(slice.getNextCursor());
+        assertEquals(4L, slice.getTotalElements());
+    }
+
+    @Test
+    void testScrollUsers_InvalidCursor() {
+        // Arrange
+        String searchCursor = UserCursor.afterBirthDate(LocalDate.of(1990, 1, 1), 3L).encode();
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> userService.scrollUsers("not-a-cursor", 10, false));
+        assertThrows(ValidationException.class, () -> userService.scrollUsers(searchCursor, 10, false));
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     void testDeleteUserById() {
         // Arrange
         Long userId = 1L;
-        when(userRepository.existsById(userId)).thenReturn(true);
+        when(userRepository.deleteUserById(userId)).thenReturn(1);
 
         // Act
         userService.deleteUserById(userId);
 
         // Assert
-        verify(userRepository, times(1)).existsById(userId);
-        verify(userRepository, times(1)).deleteById(userId);
+        verify(userRepository, times(1)).deleteUserById(userId);
+        verify(userRepository, never()).existsById(userId);
+        verify(userRepository, never()).deleteById(userId);
     }
 
     @Test
     void testDeleteUserById_UserNotFound() {
         // Arrange
         Long userId = 1L;
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.deleteUserById(userId)).thenReturn(0);
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> userService.deleteUserById(userId));
@@ -213,25 +414,62 @@ public class UserServiceImplTest {
         Long userId = 1L;
         UserUpdateRequest updateRequest = new UserUpdateRequest("new@example.com", "newPassword",
                 "NewFirst", "NewLast", LocalDate.of(1995, 10, 20), "789 Elm St", "5678901234");
-        UserEntity existingUser = new UserEntity(userId, "old@example.com",
-                passwordEncoder.encode(updateRequest.getPassword()), "OldFirst", "OldLast",
-                LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail(updateRequest.getEmail())).thenReturn(false);
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "old@example.com",
+                "OldFirst", "OldLast", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(1);
 
         // Act
-        User updatedUser = userService.partialUpdateUser(userId, updateRequest);
+        User updatedUser = userService.partialUpdateUser(userId, updateRequest, null);
 
         // Assert
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).existsByEmail(updateRequest.getEmail());
+        verify(userRepository, times(1)).findUserById(userId);
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userRepository, times(1)).updateColumns(eq(userId), eq(0L), changesCaptor.capture());
+        assertTrue(passwordEncoder.matches(updateRequest.getPassword(), (String) changesCaptor.getValue().get("password")));
         assertEquals(updateRequest.getEmail(), updatedUser.getEmail());
-        assertNotEquals(updateRequest.getPassword(), existingUser.getPassword());
         assertEquals(updateRequest.getFirstName(), updatedUser.getFirstName());
         assertEquals(updateRequest.getLastName(), updatedUser.getLastName());
         assertEquals(updateRequest.getBirthDate(), updatedUser.getBirthDate());
         assertEquals(updateRequest.getAddress(), updatedUser.getAddress());
         assertEquals(updateRequest.getPhoneNumber(), updatedUser.getPhoneNumber());
+        assertTrue(registeredEmails.mightBeRegistered(updateRequest.getEmail()));
+    }
+
+    @Test
+    void testPartialUpdateUser_OnlyChangedColumns() {
+        // Arrange
+        Long userId = 1L;
+        UserUpdateRequest updateRequest = new UserUpdateRequest("old@example.com", null,
+                "NewFirst", null, null, null, null);
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "old@example.com",
+                "OldFirst", "OldLast", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(1);
+
+        // Act
+        User updatedUser = userService.partialUpdateUser(userId, updateRequest, null);
+
+        // Assert
+        verify(userRepository, times(1)).updateColumns(userId, 0L, Map.of("firstName", "NewFirst"));
+        assertEquals("OldLast", updatedUser.getLastName());
+    }
+
+    @Test
+    void testPartialUpdateUser_InvalidatesCachedCredentials() {
+        // Arrange
+        Long userId = 1L;
+        UserUpdateRequest updateRequest = new UserUpdateRequest(null, "newPassword",
+                null, null, null, null, null);
+        String oldHash = passwordEncoder.encode("oldPassword");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "old@example.com",
+                "OldFirst", "OldLast", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(1);
+        credentialCache.put("old@example.com", "oldPassword", oldHash, credentialCache.generation());
+
+        // Act
+        userService.partialUpdateUser(userId, updateRequest, null);
+
+        // Assert
+        assertNull(credentialCache.get("old@example.com", "oldPassword"));
     }
 
     @Test
@@ -240,13 +478,12 @@ public class UserServiceImplTest {
         Long userId = 1L;
         UserUpdateRequest updateRequest = new UserUpdateRequest("new@example.com", "newPassword",
                 "NewFirst", "NewLast", LocalDate.of(1995, 10, 20), "789 Elm St", "5678901234");
-        UserEntity existingUser = new UserEntity(userId, "old@example.com", "oldPassword",
-                "OldFirst", "OldLast", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail(updateRequest.getEmail())).thenReturn(true);
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(new User(userId, "old@example.com",
+                "OldFirst", "OldLast", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L)));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenThrow(duplicateEmail(updateRequest.getEmail()));
 
         // Act & Assert
-        assertThrows(ValidationException.class, () -> userService.partialUpdateUser(userId, updateRequest));
+        assertThrows(ValidationException.class, () -> userService.partialUpdateUser(userId, updateRequest, null));
     }
 
     @Test
@@ -255,19 +492,19 @@ public class UserServiceImplTest {
         LocalDate fromDate = LocalDate.of(1990, 1, 1);
         LocalDate toDate = LocalDate.of(2000, 12, 31);
         PageRequest pageRequest = PageRequest.of(0, 10);
-        List<UserEntity> userEntities = new ArrayList<>();
-        userEntities.add(new UserEntity(1L, "test1@example.com", "hashedPassword1",
+        List<User> userEntities = new ArrayList<>();
+        userEntities.add(new User(1L, "test1@example.com",
                 "John", "Doe", LocalDate.of(1992, 5, 10), "123 Main St", "1234567890"));
-        userEntities.add(new UserEntity(2L, "test2@example.com", "hashedPassword2",
+        userEntities.add(new User(2L, "test2@example.com",
                 "Jane", "Smith", LocalDate.of(1995, 8, 15), "456 Oak Ave", "0987654321"));
-        Page<UserEntity> userEntitiesPage = new PageImpl<>(userEntities);
-        when(userRepository.findAllByBirthDateBetween(fromDate, toDate, pageRequest)).thenReturn(userEntitiesPage);
+        Page<User> userEntitiesPage = new PageImpl<>(userEntities);
+        when(userRepository.findUsersByBirthDateBetween(fromDate, toDate, pageRequest)).thenReturn(userEntitiesPage);
 
         // Act
         Page<User> userPage = userService.searchUsers(fromDate, toDate, pageRequest);
 
         // Assert
-        verify(userRepository, times(1)).findAllByBirthDateBetween(fromDate, toDate, pageRequest);
+        verify(userRepository, times(1)).findUsersByBirthDateBetween(fromDate, toDate, pageRequest);
         assertEquals(2, userPage.getTotalElements());
         List<User> users = userPage.getContent();
         assertEquals(userEntities.get(0).getId(), users.get(0).getId());
@@ -307,15 +544,16 @@ public class UserServiceImplTest {
     void testGetUserById() {
         // Arrange
         Long userId = 1L;
-        UserEntity userEntity = new UserEntity(userId, "test@example.com",
-                "hashedPassword", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(userEntity));
+        User userEntity = new User(userId, "test@example.com",
+                "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(userEntity));
 
         // Act
         User user = userService.getUserById(userId);
 
         // Assert
-        verify(userRepository, times(1)).findById(userId);
+        verify(userRepository, times(1)).findUserById(userId);
+        verify(userRepository, never()).findById(userId);
         assertEquals(userEntity.getId(), user.getId());
         assertEquals(userEntity.getEmail(), user.getEmail());
         assertEquals(userEntity.getFirstName(), user.getFirstName());
@@ -325,11 +563,40 @@ public class UserServiceImplTest {
         assertEquals(userEntity.getPhoneNumber(), user.getPhoneNumber());
     }
 
+    @Test
+    void testGetUserById_CachedUntilUpdated() {
+        // Arrange
+        Long userId = 1L;
+        UserEntity userEntity = new UserEntity(userId, "test@example.com",
+                "hashedPassword", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890");
+        User john = new User(userId, "test@example.com", "John", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 0L);
+        User jack = new User(userId, "test@example.com", "Jack", "Doe", LocalDate.of(1990, 1, 1), "123 Main St", "1234567890", 1L);
+        when(userRepository.findUserById(userId)).thenReturn(Optional.of(john), Optional.of(john), Optional.of(jack));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(userEntity));
+        when(userRepository.updateColumns(eq(userId), eq(0L), anyMap())).thenReturn(1);
+        UserUpdateRequest updateRequest = new UserUpdateRequest();
+        updateRequest.setFirstName("Jack");
+
+        // Act
+        userService.getUserById(userId);
+        userService.getUserById(userId);
+        UserCredentials credentials = userService.getUserCredentialsByEmail("test@example.com");
+        userService.partialUpdateUser(userId, updateRequest, null);
+        User user = userService.getUserById(userId);
+
+        // Assert
+        assertEquals("hashedPassword", credentials.getPassword());
+        verify(userRepository, times(1)).findByEmail("test@example.com");
+        verify(userRepository, times(3)).findUserById(userId);
+        assertEquals("Jack", user.getFirstName());
+        assertEquals(1L, userService.getKnownVersion(userId));
+    }
+
     @Test
     void testGetUserById_UserNotFound() {
         // Arrange
         Long userId = 1L;
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findUserById(userId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(NotFoundException.class, () -> userService.getUserById(userId));
@@ -345,4 +612,10 @@ public class UserServiceImplTest {
         assertTrue(userService.isValidBirthDate(validBirthDate, minAge));
         assertFalse(userService.isValidBirthDate(invalidBirthDate, minAge));
     }
-}
\ No newline at end of file
+
+    private static DataIntegrityViolationException duplicateEmail(String email) {
+        SQLException cause = new SQLException("Duplicate entry '" + email + "' for key 'users.email'", "23000", 1062);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", cause, "users.email"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.max.rest.service;
+
+import com.max.rest.dto.UserRequest;
+import com.max.rest.dto.UserUpdateRequest;
+import com.max.rest.entity.UserEntity;
+import com.max.rest.exception.NotFoundException;
+import com.max.rest.exception.PreconditionFailedException;
+import com.max.rest.exception.ValidationException;
+import com.max.rest.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the JDBC statements each write path sends to the embedded H2 database.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class UserServiceStatementCountTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Long userId;
+
+    private Long otherId;
+
+    @BeforeEach
+    void setUp() {
+        List<UserEntity> users = userRepository.saveAll(List.of(
+                new UserEntity(null, "count@example.com", "hash", "John", "Doe", LocalDate.of(1990, 1, 1), null, null),
+                new UserEntity(null, "taken@example.com", "hash", "Jane", "Doe", LocalDate.of(1990, 1, 1), null, null)));
+        userId = users.get(0).getId();
+        otherId = users.get(1).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllById(List.of(userId, otherId).stream().filter(userRepository::existsById).toList());
+    }
+
+    @Test
+    void testDeleteUserById() {
+        // Act
+        userService.deleteUserById(userId);
+
+        // Assert
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertFalse(userRepository.existsById(userId));
+    }
+
+    @Test
+    void testDeleteUserById_UserNotFound() {
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> userService.deleteUserById(Long.MAX_VALUE));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testUpdateUser() {
+        // Act
+        userService.updateUser(userId, new UserRequest("count2@example.com", "password123", "Jack", "Doe",
+                LocalDate.of(1990, 1, 1), null, null), null);
+
+        // Assert
+        assertEquals(2, statistics.getPrepareStatementCount());
+        UserEntity stored = userRepository.findById(userId).orElseThrow();
+        assertEquals("count2@example.com", stored.getEmail());
+        assertEquals("Jack", stored.getFirstName());
+        assertEquals(1L, stored.getVersion());
+    }
+
+    @Test
+    void testUpdateUser_VersionMismatch() {
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(userId, new UserRequest(
+                "count@example.com", "password123", "Jack", "Doe", LocalDate.of(1990, 1, 1), null, null), Set.of(7L)));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("John", userRepository.findById(userId).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void testUpdateUser_EmailTaken() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> userService.updateUser(userId, new UserRequest(
+                "taken@example.com", "password123", "John", "Doe", LocalDate.of(1990, 1, 1), null, null), null));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("count@example.com", userRepository.findById(userId).orElseThrow().getEmail());
+    }
+
+    @Test
+    void testPartialUpdateUser() {
+        // Arrange
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setLastName("Smith");
+
+        // Act
+        userService.partialUpdateUser(userId, request, null);
+
+        // Assert
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Smith", userRepository.findById(userId).orElseThrow().getLastName());
+    }
+
+    @Test
+    void testPartialUpdateUser_NothingChanged() {
+        // Arrange
+        UserUpdateRequest request = new UserUpdateRequest();
+        request.setFirstName("John");
+
+        // Act
+        userService.partialUpdateUser(userId, request, null);
+
+        // Assert
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,149 @@
+package com.max.rest.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryRefreshTokenStoreTest {
+
+    private static final Duration SWEEP_INTERVAL = Duration.ofHours(1);
+
+    @TempDir
+    Path tempDir;
+
+    private final List<InMemoryRefreshTokenStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(InMemoryRefreshTokenStore::destroy);
+    }
+
+    @Test
+    void testSaveAndMatches() {
+        // Arrange
+        InMemoryRefreshTokenStore store = newStore(Duration.ofDays(1), null);
+
+        // Act
+        store.save("test@example.com", "token-1");
+
+        // Assert
+        assertTrue(store.matches("test@example.com", "token-1"));
+        assertFalse(store.matches("test@example.com", "token-2"));
+        assertFalse(store.matches("other@example.com", "token-1"));
+    }
+
+    @Test
+    void testRotate_OnlyOneConcurrentRenewalWins() throws Exception {
+        // Arrange
+        InMemoryRefreshTokenStore store = newStore(Duration.ofDays(1), null);
+        store.save("test@example.com", "token-0");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            String newToken = "token-new-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (store.rotate("test@example.com", "token-0", newToken))
+                    winners.incrementAndGet();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, winners.get());
+        assertFalse(store.matches("test@example.com", "token-0"));
+    }
+
+    @Test
+    void testEvictExpired() throws InterruptedException {
+        // Arrange
+        InMemoryRefreshTokenStore store = newStore(Duration.ofMillis(50), null);
+        store.save("first@example.com", "token-1");
+        store.save("second@example.com", "token-2");
+        Thread.sleep(100);
+
+        // Act
+        int evicted = store.evictExpired();
+
+        // Assert
+        assertEquals(2, evicted);
+        assertEquals(0, store.size());
+        assertFalse(store.matches("first@example.com", "token-1"));
+    }
+
+    @Test
+    void testJournal_SurvivesRestartAndCompaction() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("refresh.journal");
+        InMemoryRefreshTokenStore store = newStore(Duration.ofDays(1), new RefreshTokenJournal(path, 256));
+        for (int i = 0; i < 50; i++)
+            store.save("user" + (i % 3) + "@example.com", "token-" + i);
+        store.remove("user0@example.com");
+        store.rotate("user1@example.com", "token-49", "token-rotated");
+        store.destroy();
+
+        // Act
+        InMemoryRefreshTokenStore restored = newStore(Duration.ofDays(1), new RefreshTokenJournal(path, 256));
+
+        // Assert
+        assertEquals(2, restored.size());
+        assertFalse(restored.matches("user0@example.com", "token-48"));
+        assertTrue(restored.matches("user1@example.com", "token-rotated"));
+        assertTrue(restored.matches("user2@example.com", "token-47"));
+    }
+
+    @Test
+    void testJournal_StaysUsableWhenCompactionFails() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("refresh.journal");
+        RefreshTokenJournal journal = new RefreshTokenJournal(path, 256);
+        journal.appendPut("first@example.com", new RefreshTokenEntry(1, 2, Long.MAX_VALUE));
+        // A non-empty directory where the compacted file should go cannot be replaced
+        Path blocker = Files.createDirectories(tempDir.resolve("refresh.journal.compact"));
+        Files.write(blocker.resolve("blocker"), "x".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        assertThrows(IllegalStateException.class, journal::compact);
+        journal.appendPut("second@example.com", new RefreshTokenEntry(3, 4, Long.MAX_VALUE));
+        journal.close();
+
+        // Assert
+        RefreshTokenJournal reopened = new RefreshTokenJournal(path, 256);
+        assertEquals(Set.of("first@example.com", "second@example.com"), reopened.replay(0).keySet());
+        reopened.close();
+    }
+
+    @Test
+    void testJournalCapacity_StaysWithinOneMapping() {
+        // Act & Assert
+        assertEquals(2047 * 1024 * 1024, InMemoryRefreshTokenStore.journalCapacityBytes(2047));
+        assertThrows(IllegalArgumentException.class, () -> InMemoryRefreshTokenStore.journalCapacityBytes(2048));
+        assertThrows(IllegalArgumentException.class, () -> InMemoryRefreshTokenStore.journalCapacityBytes(0));
+    }
+
+    private InMemoryRefreshTokenStore newStore(Duration ttl, RefreshTokenJournal journal) {
+        InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(ttl, SWEEP_INTERVAL, journal);
+        stores.add(store);
+        return store;
+    }
+}
@@ -0,0 +1,144 @@
+package com.max.rest.store;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against an embedded H2 database in MySQL mode, migrated with the application's Flyway scripts.
+ */
+public class JdbcRefreshTokenStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DataSourceTransactionManager transactionManager;
+
+    private final List<JdbcRefreshTokenStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(JdbcRefreshTokenStore::destroy);
+    }
+
+    @Test
+    void testSaveAndMatches() {
+        // Arrange
+        JdbcRefreshTokenStore store = newStore(30, 2000);
+
+        // Act
+        store.save("test@example.com", "token-1");
+        store.save("test@example.com", "token-2");
+
+        // Assert
+        assertTrue(store.matches("test@example.com", "token-2"));
+        assertFalse(store.matches("test@example.com", "token-1"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+    }
+
+    @Test
+    void testRotationIsVisibleOnAnotherInstance() {
+        // Arrange
+        JdbcRefreshTokenStore nodeA = newStore(30, 60_000);
+        JdbcRefreshTokenStore nodeB = newStore(30, 60_000);
+        nodeA.save("test@example.com", "token-1");
+        assertTrue(nodeB.matches("test@example.com", "token-1"));
+
+        // Act
+        boolean rotated = nodeA.rotate("test@example.com", "token-1", "token-2");
+
+        // Assert
+        assertTrue(rotated);
+        assertTrue(nodeB.matches("test@example.com", "token-2"));
+        assertFalse(nodeB.rotate("test@example.com", "token-1", "token-3"));
+    }
+
+    @Test
+    void testRotate_OnlyOneConcurrentRenewalWins() throws Exception {
+        // Arrange
+        JdbcRefreshTokenStore nodeA = newStore(30, 2000);
+        JdbcRefreshTokenStore nodeB = newStore(30, 2000);
+        nodeA.save("test@example.com", "token-0");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            JdbcRefreshTokenStore node = i % 2 == 0 ? nodeA : nodeB;
+            String newToken = "token-new-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (node.rotate("test@example.com", "token-0", newToken))
+                    winners.incrementAndGet();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, winners.get());
+    }
+
+    @Test
+    void testRemove() {
+        // Arrange
+        JdbcRefreshTokenStore store = newStore(30, 2000);
+        store.save("test@example.com", "token-1");
+
+        // Act
+        store.remove("test@example.com");
+
+        // Assert
+        assertFalse(store.matches("test@example.com", "token-1"));
+    }
+
+    @Test
+    void testPurgeExpired_DeletesInChunks() {
+        // Arrange
+        JdbcRefreshTokenStore store = newStore(30, 2000);
+        for (int i = 0; i < 25; i++)
+            jdbcTemplate.update("INSERT INTO refresh_tokens (email, token_hash, expires_at) VALUES (?, ?, ?)",
+                    "expired" + i + "@example.com", new byte[32], System.currentTimeMillis() - 1000);
+        store.save("live@example.com", "token-1");
+
+        // Act
+        int purged = store.purgeExpired();
+
+        // Assert
+        assertEquals(25, purged);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+        assertTrue(store.matches("live@example.com", "token-1"));
+    }
+
+    private JdbcRefreshTokenStore newStore(int days, long cacheTtlMillis) {
+        JdbcRefreshTokenStore store = new JdbcRefreshTokenStore(jdbcTemplate, transactionManager,
+                days, 3600, 16, 2, cacheTtlMillis, 10);
+        stores.add(store);
+        return store;
+    }
+}
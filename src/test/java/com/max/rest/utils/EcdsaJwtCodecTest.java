@@ -0,0 +1,115 @@
+package com.max.rest.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.max.rest.configuration.JwtSigningProperties;
+import com.max.rest.dto.TokenStatus;
+import com.max.rest.dto.TokenVerification;
+import com.max.rest.security.JwtKeyRing;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EcdsaJwtCodecTest {
+
+    @Test
+    void testMint_VerifiesWithJjwtAndPublishedJwk() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", List.of());
+        EcdsaJwtCodec codec = new EcdsaJwtCodec(keyRing);
+        long expiration = System.currentTimeMillis() / 1000 + 60;
+
+        // Act
+        String token = codec.mint("test@example.com", expiration);
+
+        // Assert
+        JsonNode jwk = new ObjectMapper().readTree(keyRing.getJwks()).get("keys").get(0);
+        assertEquals(keyRing.getActiveKey().kid(), jwk.get("kid").asText());
+        Claims claims = Jwts.parserBuilder().setSigningKey(publicKeyFromJwk(jwk)).build()
+                .parseClaimsJws(token).getBody();
+        assertEquals("test@example.com", claims.getSubject());
+        assertEquals(expiration, claims.getExpiration().getTime() / 1000);
+
+        TokenVerification verification = codec.verify(token);
+        assertTrue(verification.isValid());
+        assertEquals("test@example.com", verification.getSubject());
+    }
+
+    @Test
+    void testVerify_AcceptsRetiredKeysAndJjwtTokens() throws Exception {
+        // Arrange
+        KeyPair active = generate();
+        KeyPair retired = generate();
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", List.of(key("active", active, true), key("retired", retired, false)));
+        EcdsaJwtCodec codec = new EcdsaJwtCodec(keyRing);
+        String retiredToken = Jwts.builder().setHeaderParam("kid", "retired").setSubject("old@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(retired.getPrivate(), SignatureAlgorithm.ES256).compact();
+
+        // Act
+        TokenVerification verification = codec.verify(retiredToken);
+
+        // Assert
+        assertEquals("active", keyRing.getActiveKey().kid());
+        assertTrue(verification.isValid());
+        assertEquals("old@example.com", verification.getSubject());
+        assertEquals(2, new ObjectMapper().readTree(keyRing.getJwks()).get("keys").size());
+    }
+
+    @Test
+    void testVerify_Rejections() throws Exception {
+        // Arrange
+        JwtKeyRing keyRing = new JwtKeyRing("ES256", List.of());
+        EcdsaJwtCodec codec = new EcdsaJwtCodec(keyRing);
+        String token = codec.mint("test@example.com", System.currentTimeMillis() / 1000 + 60);
+        String expired = codec.mint("test@example.com", System.currentTimeMillis() / 1000 - 60);
+        String foreign = new EcdsaJwtCodec(new JwtKeyRing("ES256", List.of())).mint("test@example.com",
+                System.currentTimeMillis() / 1000 + 60);
+        char last = token.charAt(token.length() - 5);
+        String tampered = token.substring(0, token.length() - 5) + (last == 'A' ? 'B' : 'A') + token.substring(token.length() - 4);
+
+        // Act & Assert
+        assertEquals(TokenStatus.EXPIRED, codec.verify(expired).getStatus());
+        assertEquals(TokenStatus.INVALID_SIGNATURE, codec.verify(tampered).getStatus());
+        assertEquals(TokenStatus.UNSUPPORTED, codec.verify(foreign).getStatus());
+        assertEquals(TokenStatus.MALFORMED, codec.verify("not.a-token").getStatus());
+        assertFalse(codec.issued(foreign));
+        assertTrue(codec.issued(token));
+    }
+
+    private static PublicKey publicKeyFromJwk(JsonNode jwk) throws GeneralSecurityException {
+        ECPublicKey reference = (ECPublicKey) generate().getPublic();
+        ECPoint point = new ECPoint(
+                new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("x").asText())),
+                new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("y").asText())));
+        return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, reference.getParams()));
+    }
+
+    private static KeyPair generate() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static JwtSigningProperties.Key key(String kid, KeyPair pair, boolean signing) {
+        JwtSigningProperties.Key key = new JwtSigningProperties.Key();
+        key.setKid(kid);
+        key.setPublicKey(Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()));
+        if (signing)
+            key.setPrivateKey(Base64.getEncoder().encodeToString(pair.getPrivate().getEncoded()));
+        return key;
+    }
+}
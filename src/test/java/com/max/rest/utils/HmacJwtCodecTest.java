@@ -0,0 +1,78 @@
+package com.max.rest.utils;
+
+import com.max.rest.dto.TokenVerification;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Parity checks: tokens minted by {@link HmacJwtCodec} must be identical to the ones jjwt builds.
+ */
+public class HmacJwtCodecTest {
+
+    private static final SecretKey HS512_KEY = Keys.hmacShaKeyFor(Decoders.BASE64.decode(
+            "qBTmv4oXFFR2GwjexDJ3t6fsIUIUhhXqlktXjXdkcyygs8nPVEwMfo29VDRRepYDVV5IkIxBMzr7OEHXEHd37w=="));
+    private static final SecretKey HS256_KEY = Keys.hmacShaKeyFor(Decoders.BASE64.decode(
+            "zL1HB3Pch05Avfynovxrf/kpF9O2m4NCWKJUjEp27s0="));
+
+    static Stream<Arguments> subjects() {
+        long expiration = System.currentTimeMillis() / 1000 + 3600;
+        return Stream.of(HS512_KEY, HS256_KEY).flatMap(key -> Stream.of(
+                "user@example.com",
+                "first.last+tag@sub.example.org",
+                "quote\"back\\slash@example.com",
+                "control\t\n\r\b\f\u0001\u001f@example.com",
+                "юзер@приклад.укр",
+                "emoji😀@example.com",
+                "slash/and</script>@example.com",
+                "",
+                "   "
+        ).map(subject -> Arguments.of(key, subject, expiration)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("subjects")
+    void testMint_MatchesJjwtBuilder(SecretKey key, String subject, long expiration) {
+        // Arrange
+        HmacJwtCodec codec = new HmacJwtCodec(key);
+        String expected = Jwts.builder()
+                .setSubject(subject)
+                .setExpiration(new Date(expiration * 1000))
+                .signWith(key)
+                .compact();
+
+        // Act
+        String minted = codec.mint(subject, expiration);
+
+        // Assert
+        assertEquals(expected, minted);
+    }
+
+    @ParameterizedTest
+    @MethodSource("subjects")
+    void testMint_AcceptedByJjwtParserAndCodec(SecretKey key, String subject, long expiration) {
+        // Arrange
+        HmacJwtCodec codec = new HmacJwtCodec(key);
+
+        // Act
+        String minted = codec.mint(subject, expiration);
+        Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(minted).getBody();
+        TokenVerification verification = codec.verify(minted);
+
+        // Assert
+        assertEquals(expiration * 1000, claims.getExpiration().getTime());
+        assertEquals(claims.getSubject(), verification.getSubject());
+        assertEquals(expiration * 1000, verification.getExpiration().toEpochMilli());
+        assertTrue(verification.isValid());
+    }
+}
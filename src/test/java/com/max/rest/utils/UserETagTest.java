@@ -0,0 +1,45 @@
+package com.max.rest.utils;
+
+import com.max.rest.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserETagTest {
+
+    @Test
+    void testAcceptedVersions_ListContainingCurrentTag() {
+        // Act
+        Set<Long> versions = UserETag.acceptedVersions("\"3\", \"4\"");
+
+        // Assert
+        assertEquals(Set.of(3L, 4L), versions);
+        assertTrue(versions.contains(4L));
+    }
+
+    @Test
+    void testAcceptedVersions_ListWithoutCurrentTag() {
+        // Act
+        Set<Long> versions = UserETag.acceptedVersions("\"1\",\"2\"");
+
+        // Assert
+        assertFalse(versions.contains(4L));
+    }
+
+    @Test
+    void testAcceptedVersions_WeakTagsNeverMatch() {
+        // Act & Assert
+        assertEquals(Set.of(5L), UserETag.acceptedVersions("W/\"4\", \"5\""));
+        assertThrows(PreconditionFailedException.class, () -> UserETag.acceptedVersions("W/\"4\""));
+        assertThrows(PreconditionFailedException.class, () -> UserETag.acceptedVersions("\"abc\", 4"));
+    }
+
+    @Test
+    void testAcceptedVersions_AnyOrAbsent() {
+        // Act & Assert
+        assertNull(UserETag.acceptedVersions(null));
+        assertNull(UserETag.acceptedVersions(" * "));
+    }
+}